@@ -0,0 +1,196 @@
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact binary layout file, read whole into memory.  After the
+ * header (magic, version, dpi, width, height) comes a dictionary of
+ * shape ids, then the places as columns: every x, every y, every angle
+ * and every shape's index in the dictionary.  Little endian, with the
+ * columns aligned to 8 bytes.
+ */
+public class BinaryLayout
+{
+    public static final String EXTENSION = ".layout";
+
+    private static final int MAGIC = 0x5442_4c59; //"TBLY"
+    private static final int VERSION = 1;
+
+    public static boolean isBinary(File file) throws IOException {
+	if (file.length() < 8) return false;
+	try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+	    return Integer.reverseBytes(in.readInt()) == MAGIC;
+	}
+    }
+
+    private static int align(int n) {
+	return (n + 7) & ~7;
+    }
+
+    public static void write(File file, LayoutSnapshot layout) throws IOException {
+	try (FileChannel ch = FileChannel.open(file.toPath(), StandardOpenOption.WRITE,
+					       StandardOpenOption.CREATE,
+					       StandardOpenOption.TRUNCATE_EXISTING)) {
+	    write(ch, layout);
+	}
+    }
+
+    public static void write(WritableByteChannel ch, LayoutSnapshot layout) throws IOException {
+	Map<String,Integer> ids = new HashMap<>();
+	List<byte[]> names = new ArrayList<>();
+	int[] shapes = new int[layout.size()];
+	int dictSize = 4;
+	for (int i=0; i<shapes.length; ++i) {
+	    String id = layout.getShape(i);
+	    Integer index = ids.get(id);
+	    if (index == null) {
+		index = names.size();
+		ids.put(id, index);
+		byte[] name = id.getBytes(StandardCharsets.UTF_8);
+		names.add(name);
+		dictSize += 4 + name.length;
+	    }
+	    shapes[i] = index;
+	}
+
+	int n = layout.size();
+	int header = 8 + 3*8;
+	int columns = align(header + dictSize) + 4;
+	ByteBuffer buf = ByteBuffer.allocateDirect(align(columns) + n*3*8 + n*4)
+	    .order(ByteOrder.LITTLE_ENDIAN);
+
+	buf.putInt(MAGIC).putInt(VERSION);
+	buf.putDouble(layout.dpi).putDouble(layout.width).putDouble(layout.height);
+	buf.putInt(names.size());
+	for (byte[] name : names) {
+	    buf.putInt(name.length).put(name);
+	}
+	buf.position(align(buf.position()));
+	buf.putInt(n);
+	buf.position(align(buf.position()));
+
+	for (int i=0; i<n; ++i) buf.putDouble(layout.getX(i));
+	for (int i=0; i<n; ++i) buf.putDouble(layout.getY(i));
+	for (int i=0; i<n; ++i) buf.putDouble(layout.getAngle(i));
+	for (int i=0; i<n; ++i) buf.putInt(shapes[i]);
+	buf.flip();
+
+	while (buf.hasRemaining()) ch.write(buf);
+    }
+
+    /**
+     * Reads places straight out of the columns.  The file is read into
+     * the heap rather than mapped, so it's closed as soon as the reader is
+     * made and can be saved over right away.
+     */
+    public static class Reader implements LayoutReader
+    {
+	private final double dpi, width, height;
+	private final String[] names;
+	private final DoubleBuffer xs, ys, angles;
+	private final IntBuffer shapes;
+	private final int count;
+	private int next = 0;
+
+	public Reader(File file) throws IOException {
+	    ByteBuffer buf;
+	    try (FileChannel ch = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+		if (ch.size() > Integer.MAX_VALUE) throw new IOException(file + ": too big");
+		buf = ByteBuffer.allocate((int)ch.size());
+		while (buf.hasRemaining() && ch.read(buf) >= 0);
+		buf.flip();
+	    }
+	    buf.order(ByteOrder.LITTLE_ENDIAN);
+
+	    try {
+		if (buf.getInt() != MAGIC) throw new IOException(file + ": not a binary layout");
+		int version = buf.getInt();
+		if (version != VERSION) {
+		    throw new IOException(file + ": unknown layout version " + version);
+		}
+		dpi = buf.getDouble();
+		width = buf.getDouble();
+		height = buf.getDouble();
+
+		//counts are checked against what's left before anything is made that big
+		names = new String[checkCount(file, buf.getInt(), buf, 4)];
+		for (int i=0; i<names.length; ++i) {
+		    byte[] name = new byte[checkCount(file, buf.getInt(), buf, 1)];
+		    buf.get(name);
+		    names[i] = new String(name, StandardCharsets.UTF_8);
+		}
+		buf.position(align(buf.position()));
+		count = buf.getInt();
+		buf.position(align(buf.position()));
+		checkCount(file, count, buf, 3*8 + 4);
+
+		xs = column(buf, count*8).asDoubleBuffer();
+		ys = column(buf, count*8).asDoubleBuffer();
+		angles = column(buf, count*8).asDoubleBuffer();
+		shapes = column(buf, count*4).asIntBuffer();
+	    } catch (RuntimeException e) {
+		//truncated or otherwise broken file
+		throw new IOException(file + ": bad binary layout", e);
+	    }
+	}
+
+	//a count of things of at least size bytes each, which must fit in the rest of buf
+	private static int checkCount(File file, int count, ByteBuffer buf, int size)
+	    throws IOException {
+	    if (count < 0 || count > buf.remaining() / size) {
+		throw new IOException(file + ": bad binary layout, count " + count);
+	    }
+	    return count;
+	}
+
+	private static ByteBuffer column(ByteBuffer buf, int size) {
+	    ByteBuffer col = buf.slice().order(ByteOrder.LITTLE_ENDIAN);
+	    col.limit(size);
+	    buf.position(buf.position() + size);
+	    return col;
+	}
+
+	public double getDpi()    { return dpi;    }
+	public double getWidth()  { return width;  }
+	public double getHeight() { return height; }
+
+	public double progress() {
+	    return count > 0 ? (double)next / count : 1.0;
+	}
+
+	public int read(List<BoardController.SavedPlace> out, int max) throws IOException {
+	    int n = Math.min(max, count - next);
+	    for (int i=next; i<next+n; ++i) {
+		BoardController.SavedPlace sp = new BoardController.SavedPlace();
+		sp.x = xs.get(i);
+		sp.y = ys.get(i);
+		sp.angle = angles.get(i);
+		int shape = shapes.get(i);
+		if (shape < 0 || shape >= names.length) {
+		    throw new IOException("bad shape index " + shape);
+		}
+		sp.shape = names[shape];
+		out.add(sp);
+	    }
+	    next += n;
+	    return n;
+	}
+
+	//the file was closed once it was read
+	public void close() {
+	}
+    }
+}
@@ -5,37 +5,42 @@ import javafx.scene.control.Button;
 import javafx.scene.control.ButtonType;
 import javafx.scene.control.Toggle;
 import javafx.scene.control.ContextMenu;
+import javafx.scene.control.Label;
 import javafx.scene.control.MenuItem;
+import javafx.scene.control.ProgressBar;
 import javafx.scene.control.CheckMenuItem;
 import javafx.scene.control.ToolBar;
 import javafx.scene.control.TreeItem;
 import javafx.scene.control.TreeView;
 
 import javafx.scene.input.MouseEvent;
+import javafx.scene.input.ScrollEvent;
 import javafx.scene.layout.Pane;
 import javafx.scene.paint.Color;
+import javafx.scene.shape.Rectangle;
 import javafx.stage.Screen;
 import javafx.stage.Stage;
 import javafx.stage.FileChooser;
 import javafx.event.ActionEvent;
+import javafx.application.Platform;
+import javafx.concurrent.Task;
 
 //image export
-import javafx.scene.image.WritableImage;
-import javafx.scene.SnapshotParameters;
-import javax.imageio.ImageIO;
-import javafx.embed.swing.SwingFXUtils;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.HashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
 
 import java.io.File;
 import java.io.IOException;
 
 import javafx.util.Pair;
 
-import javax.xml.bind.JAXB;
 import javax.xml.bind.annotation.XmlAttribute;
 import javax.xml.bind.annotation.XmlElement;
 import javax.xml.bind.annotation.XmlElementWrapper;
@@ -53,6 +58,8 @@ public class BoardController {
     public MenuItem exportItem;
     public MenuItem closeItem;
 
+    public MenuItem undoItem;
+    public MenuItem redoItem;
     public MenuItem moveLeftItem;
     public MenuItem moveRightItem;
     public MenuItem moveUpItem;
@@ -62,16 +69,40 @@ public class BoardController {
     public CheckMenuItem colorCodeCurvesItem;
     public CheckMenuItem inactiveJoinersItem;
     public CheckMenuItem drawTiesItem;
+    public CheckMenuItem jointCheckItem;
+    public CheckMenuItem perfHudItem;
+    public CheckMenuItem runTrainsItem;
+    public MenuItem clearTrainsItem;
+
+    public MenuItem zoomInItem;
+    public MenuItem zoomOutItem;
+    public MenuItem zoomFitItem;
+
+    public Label statusLabel;
+    public ProgressBar loadProgress;
+    public Button cancelLoadButton;
     
     public Canvas treePreview;
     public TreeView<ShapeBox.TreeTrack> shapeTree;
     
     private BoardModel model;
+    private static final long SPRITE_CACHE_BYTES = 64L << 20;
+    private static final long TILE_CACHE_BYTES = 128L << 20;
+    //edits that can be undone; each is a few dozen bytes
+    private static final int UNDO_LIMIT = 10000;
+    private UndoStack undo;
+    private TrainSim trains;
+    private PerfHud hud;
+    private static final String METRICS_NAME = "TrainBoard:type=BoardModel";
     private final ShapeBox shapeBox = new ShapeBox();
+    private final Map<String,Shape> shapesMap = new HashMap<>();
     
     public BoardController(Stage stage, File file) {
         this.stage = stage;
         this.file = file;
+	for (Shape s : shapeBox.getShapes()) {
+	    shapesMap.put(s.getId(), s);
+	}
     }
 
     private File file = null;
@@ -93,16 +124,22 @@ public class BoardController {
     private double cy = -1;
 
     private Point cmPoint = null;
+    private Point routeFrom = null;
 
-    private ContextMenu makeContextMenu(final GraphicsContext gc) 
+    private ContextMenu makeContextMenu() 
     {
         final MenuItem cmDeleteItem = new MenuItem("Delete");
         final MenuItem cmRotateItem = new MenuItem("Rotate");
 	final MenuItem cmMore = new MenuItem("Make More");
+	final MenuItem cmRouteFrom = new MenuItem("Route From Here");
+	final MenuItem cmRouteTo = new MenuItem("Route To Here");
+	final MenuItem cmTrain = new MenuItem("Add Train");
+	final MenuItem cmSwitch = new MenuItem("Throw Switch");
 	
         final CheckMenuItem cmFloatItem = new CheckMenuItem("Float");
         final ContextMenu contextMenu 
-	    = new ContextMenu(cmRotateItem, cmDeleteItem, cmFloatItem, cmMore);
+	    = new ContextMenu(cmRotateItem, cmDeleteItem, cmFloatItem, cmMore,
+			      cmRouteFrom, cmRouteTo, cmTrain, cmSwitch);
 
         contextMenu.setAutoHide(true);
 	
@@ -114,18 +151,45 @@ public class BoardController {
             });
 	cmMore.setOnAction((ActionEvent e) -> {
 		final GraphicsContext tpgc = treePreview.getGraphicsContext2D();
-		previewShape.ifPresent(s -> s.erase(tpgc));
-		cmPoint.shape.draw(tpgc, Color.TRANSPARENT);
+		final Pen pen = new FxPen(tpgc, Track.Detail.FULL);
+		previewShape.ifPresent(s -> s.erase(pen));
+		cmPoint.shape.draw(pen, Color.TRANSPARENT);
 		previewShape = Optional.of(cmPoint.shape);
 	    });
 	
 	cmFloatItem.setOnAction((ActionEvent e) -> {
 		if (cmPoint != null) {
-		    cmPoint.floating = cmFloatItem.isSelected();
-		    cmPoint.draw(gc, model.pointColorNormal());
+		    model.floatShape(cmPoint, cmFloatItem.isSelected());
 		}
 		
 	    });
+
+	cmRouteFrom.setOnAction((ActionEvent e) -> {
+		routeFrom = cmPoint;
+		model.showRoute(null);
+	    });
+	cmRouteTo.setOnAction((ActionEvent e) -> {
+		if (routeFrom == null || cmPoint == null) return;
+		RouteFinder.Route route = model.getRoutes().find(routeFrom, cmPoint);
+		model.showRoute(route);
+		if (route == null) {
+		    showStatus("No route");
+		} else {
+		    showStatus(String.format("Route of %d pieces, %.1f in",
+					     route.getPieces().size(),
+					     route.getLength() / Length.ppi));
+		}
+	    });
+
+	cmTrain.setOnAction((ActionEvent e) -> {
+		if (cmPoint == null) return;
+		trains.addTrain(cmPoint);
+		trains.start();
+		runTrainsItem.setSelected(true);
+	    });
+	cmSwitch.setOnAction((ActionEvent e) -> {
+		if (cmPoint != null) trains.throwSwitch(cmPoint);
+	    });
 		
 	return contextMenu;
     }
@@ -133,29 +197,409 @@ public class BoardController {
     private Length width;
     private Length height;
 
+    //the canvases fill the window and show the board through the model's view
+    private final Rectangle boardArea = new Rectangle();
+    static final Color BOARD_COLOR = Color.DARKKHAKI;
+    private static final double ZOOM_STEP = 1.25;
+    private static final double MIN_ZOOM = 1.0/64;
+    private static final double MAX_ZOOM = 16;
+
+    private void setView(double scale, double x, double y) {
+	scale = Math.max(MIN_ZOOM, Math.min(MAX_ZOOM, scale));
+	model.setView(scale, x, y);
+	boardArea.setX(model.toScreenX(0));
+	boardArea.setY(model.toScreenY(0));
+	boardArea.setWidth(width.getPixels() * scale);
+	boardArea.setHeight(height.getPixels() * scale);
+    }
 
-    private void resizeBoard(Canvas canvas, Canvas floatingCanvas) {
-	canvas.setWidth(width.getPixels());
-	floatingCanvas.setWidth(width.getPixels());
-	canvas.setHeight(height.getPixels());
-	floatingCanvas.setHeight(height.getPixels());
+    /** Zoom by factor, keeping the board point under sx,sy in place. */
+    private void zoomAt(double factor, double sx, double sy) {
+	double scale = model.getScale() * factor;
+	scale = Math.max(MIN_ZOOM, Math.min(MAX_ZOOM, scale));
+	setView(scale,
+		model.toBoardX(sx) - sx/scale,
+		model.toBoardY(sy) - sy/scale);
+    }
+
+    private void pan(double dx, double dy) {
+	double scale = model.getScale();
+	setView(scale, model.getOriginX() + dx/scale, model.getOriginY() + dy/scale);
+    }
+
+    private void zoomToFit() {
+	double w = canvasPane.getWidth();
+	double h = canvasPane.getHeight();
+	if (w <= 0 || h <= 0) {
+	    setView(1, 0, 0);
+	    return;
+	}
+	double scale = Math.min(w / width.getPixels(), h / height.getPixels());
+	scale = Math.max(MIN_ZOOM, Math.min(MAX_ZOOM, scale));
+	setView(scale,
+		(width.getPixels() - w/scale) / 2,
+		(height.getPixels() - h/scale) / 2);
+    }
+
+    private void resizeBoard() {
+	zoomToFit();
     }
     
-    private void loadFile(File file, Canvas canvas, Canvas floatingCanvas) {
-	SavedBoard sb = JAXB.unmarshal(file, SavedBoard.class);
-	if (sb.width > 0 && sb.height > 0) {
-	    width = new Length(sb.width);
-	    height = new Length(sb.height);
-            //Length.ppi = sb.dpi;
+    //places read per batch, and how many batches may wait to be added
+    private static final int LOAD_BATCH = 500;
+    private static final int LOAD_AHEAD = 2;
+    private Task<Integer> loading = null;
+
+    /**
+     * Read the file on a background thread, adding and drawing the
+     * pieces a batch at a time.  Cancelling leaves an empty board.
+     */
+    private void loadFile(File file) {
+	cancelLoad();
+	stopJournal();
+	final boolean recover = EditJournal.hasEdits(file) && askRecover(file);
+
+	final LayoutReader reader;
+	try {
+	    reader = LayoutReader.open(file);
+	} catch (IOException e) {
+	    loadFailed(file, e);
+	    return;
+	}
+
+	if (reader.getWidth() > 0 && reader.getHeight() > 0) {
+	    width = new Length(reader.getWidth());
+	    height = new Length(reader.getHeight());
+            //Length.ppi = reader.getDpi();
             
-	    resizeBoard(canvas, floatingCanvas);
+	    resizeBoard();
 	} else {
 	    System.err.println("missing size in save file");
 	}
-		    
-	if (sb.tracks != null) {
-	    addAllPlaces(sb.tracks);
+
+	final Task<Integer> task = new Task<Integer>() {
+		@Override protected Integer call() throws Exception {
+		    long start = System.nanoTime();
+		    BoardEvents.Load event = new BoardEvents.Load();
+		    event.begin();
+		    Semaphore ahead = new Semaphore(LOAD_AHEAD);
+		    List<SavedPlace> places = new ArrayList<>();
+		    int total = 0;
+		    try (LayoutReader r = reader) {
+			while (! isCancelled() && r.read(places, LOAD_BATCH) > 0) {
+			    List<Point> points = toPoints(places);
+			    places.clear();
+			    ahead.acquire();
+			    Platform.runLater(() -> {
+				    ahead.release();
+				    if (isCancelled()) return;
+				    for (Point p : points) model.addPoint(p);
+				    model.repaint();
+				});
+			    total += points.size();
+			    updateProgress(r.progress(), 1.0);
+			    updateMessage(String.format("Loading %s: %d pieces", file.getName(), total));
+			}
+		    }
+		    model.getMetrics().record(BoardMetrics.Op.LOAD, start);
+		    if (event.shouldCommit()) {
+			event.file = file.getPath();
+			event.bytes = file.length();
+			event.pieces = total;
+			event.commit();
+		    }
+		    return total;
+		}
+	    };
+
+	//the board can't be edited until it's all there, so this is only a safeguard
+	final long edits = model.getEdits();
+	setEditable(false);
+	statusLabel.textProperty().bind(task.messageProperty());
+	loadProgress.progressProperty().bind(task.progressProperty());
+	loadProgress.setVisible(true);
+	cancelLoadButton.setVisible(true);
+
+	task.setOnSucceeded(e -> {
+		endLoad();
+		statusLabel.setText(String.format("Loaded %d pieces", task.getValue()));
+		if (model.getEdits() == edits) model.makeClean();
+		if (recover) {
+		    recoverJournal(file);
+		} else {
+		    startJournal(file);
+		}
+		undo.clear();
+	    });
+	task.setOnFailed(e -> {
+		endLoad();
+		loadFailed(file, task.getException());
+	    });
+	task.setOnCancelled(e -> {
+		endLoad();
+		abandonLoad();
+		statusLabel.setText("Load cancelled");
+	    });
+
+	loading = task;
+	Thread thread = new Thread(task, "layout loader");
+	thread.setDaemon(true);
+	thread.start();
+    }
+
+    //part of a layout mustn't be saved over the whole of it
+    private void abandonLoad() {
+	model.reset(canvasPane.getWidth(), canvasPane.getHeight());
+	undo.clear();
+	file = null;
+	saveItem.setDisable(true);
+	stage.setTitle(TITLE_PREFIX);
+    }
+
+    private void loadFailed(File file, Throwable e) {
+	abandonLoad();
+	System.err.println("can't load " + file + ": " + e);
+	statusLabel.setText("Can't load " + file.getName());
+	Alert alert = new Alert(Alert.AlertType.ERROR);
+	alert.setTitle("Load Failed");
+	alert.setHeaderText("Can't load " + file.getName());
+	alert.setContentText(String.valueOf(e.getMessage()));
+	alert.show();
+    }
+
+    private EditJournal journal = null;
+    private File journaled = null;
+
+    private boolean askRecover(File file) {
+	Alert alert = new Alert(Alert.AlertType.CONFIRMATION);
+	alert.setTitle("Recover Changes");
+	alert.setHeaderText("Recover unsaved changes to " + file.getName() + "?");
+	alert.setContentText("They were kept in " + EditJournal.journalFor(file).getName());
+	return alert.showAndWait()
+	    .filter(response -> response == ButtonType.OK)
+	    .isPresent();
+    }
+
+    private void recoverJournal(File file) {
+	int edits;
+	try {
+	    edits = EditJournal.replay(file, model, shapesMap);
+	} catch (IOException e) {
+	    System.err.println("can't recover " + e.getMessage());
+	    recoverFailed(file, e);
+	    return;
+	}
+	statusLabel.setText(String.format("Recovered %d changes to %s", edits, file.getName()));
+	startJournal(file);
+	//the layout file doesn't have the recovered changes yet
+	if (journal != null) journal.checkpoint();
+    }
+
+    /**
+     * The replay may have stopped part way, so keep the journal, which
+     * has the only copy of the edits, and load the layout again as saved.
+     */
+    private void recoverFailed(File file, IOException e) {
+	Alert alert = new Alert(Alert.AlertType.ERROR);
+	alert.setTitle("Recover Failed");
+	alert.setHeaderText("Can't recover changes to " + file.getName());
+	try {
+	    File aside = EditJournal.setAside(file);
+	    alert.setContentText(e.getMessage() + "\nThey were kept in " + aside.getName());
+	    model.reset(canvasPane.getWidth(), canvasPane.getHeight());
+	    undo.clear();
+	    loadFile(file);
+	} catch (IOException moveFailed) {
+	    //which would overwrite the journal if loaded again
+	    System.err.println("can't keep journal: " + moveFailed);
+	    alert.setContentText(e.getMessage() + "\nThey are still in "
+				 + EditJournal.journalFor(file).getName());
+	    abandonLoad();
+	    statusLabel.setText("Can't recover changes to " + file.getName());
+	}
+	alert.show();
+    }
+
+    /** Journal edits to the board, which matches file as saved. */
+    private void startJournal(File file) {
+	stopJournal();
+	try {
+	    journal = new EditJournal(file, model);
+	    journaled = file;
+	    model.addListener(journal);
+	} catch (IOException e) {
+	    System.err.println("can't journal edits: " + e);
+	    showStatus("Can't keep a journal for " + file.getName());
+	}
+    }
+
+    /** Stop journaling and delete the journal, its edits saved or unwanted. */
+    private void stopJournal() {
+	if (journal != null) {
+	    model.removeListener(journal);
+	    journal.discard();
+	    journal = null;
+	    journaled = null;
+	}
+    }
+
+    //saves run one at a time, in the order they were asked for
+    private final ExecutorService saver = Executors.newSingleThreadExecutor(r -> {
+	    Thread t = new Thread(r, "layout saver");
+	    t.setDaemon(true);
+	    return t;
+	});
+
+    /**
+     * Snapshot the board and write it on the saver thread, as a binary
+     * layout if the name says so and as XML otherwise.  The board is
+     * only marked clean if nothing changed while it was being written.
+     */
+    private void saveFile(File file) {
+	final LayoutSnapshot layout = LayoutSnapshot.of(Length.ppi, width.getInches(),
+							height.getInches(), model.shapes);
+	final long edits = model.getEdits();
+	//a new file starts a new journal, from the layout being saved
+	if (! file.equals(journaled)) startJournal(file);
+	final EditJournal saving = journal;
+
+	Task<Void> task = new Task<Void>() {
+		@Override protected Void call() throws IOException {
+		    long start = System.nanoTime();
+		    BoardEvents.Save event = new BoardEvents.Save();
+		    event.begin();
+		    layout.save(file);
+		    model.getMetrics().record(BoardMetrics.Op.SAVE, start);
+		    if (event.shouldCommit()) {
+			event.file = file.getPath();
+			event.bytes = file.length();
+			event.pieces = layout.size();
+			event.commit();
+		    }
+		    return null;
+		}
+	    };
+	task.setOnRunning(e -> {
+		showStatus("Saving " + file.getName());
+		if (loading == null) {
+		    loadProgress.setProgress(-1);
+		    loadProgress.setVisible(true);
+		}
+	    });
+	task.setOnSucceeded(e -> {
+		if (loading == null) loadProgress.setVisible(false);
+		showStatus(String.format("Saved %d pieces to %s", layout.size(), file.getName()));
+		if (model.getEdits() == edits) model.makeClean();
+		if (saving != null && saving == journal) {
+		    if (model.getEdits() == edits) {
+			saving.restart();
+		    } else {
+			saving.checkpoint();
+		    }
+		}
+	    });
+	task.setOnFailed(e -> {
+		if (loading == null) loadProgress.setVisible(false);
+		showStatus("Can't save " + file.getName());
+		Alert alert = new Alert(Alert.AlertType.ERROR);
+		alert.setTitle("Save Failed");
+		alert.setHeaderText("Can't save " + file.getName());
+		alert.setContentText(String.valueOf(task.getException().getMessage()));
+		alert.show();
+	    });
+	saver.execute(task);
+    }
+
+    /**
+     * Write the whole board on a background thread, from a copy so it
+     * can keep being edited meanwhile: as SVG if the name ends with
+     * .svg, otherwise as a PNG a strip at a time.
+     */
+    private void exportFile(File file) {
+	BoardModel board = new BoardModel(new Canvas().getGraphicsContext2D(),
+					  new Canvas().getGraphicsContext2D());
+	//looking as it does on screen
+	board.showInactiveJoiners(model.isShowingInactiveJoiners());
+	for (Point p : model.shapes) {
+	    Point copy = new Point(p.x, p.y, p.shape);
+	    copy.angle = p.angle;
+	    copy.floating = p.floating;
+	    board.addPoint(copy);
+	}
+	final double w = width.getPixels(), h = height.getPixels();
+	final boolean svg = file.getName().toLowerCase().endsWith(".svg");
+
+	Task<Void> task = new Task<Void>() {
+		@Override protected Void call() throws IOException {
+		    long start = System.nanoTime();
+		    BoardEvents.Export event = new BoardEvents.Export();
+		    event.begin();
+		    if (svg) {
+			SvgPen.export(board, w, h, BOARD_COLOR, file);
+		    } else {
+			new StripExporter(board, w, h, 1)
+			    .export(file, done -> updateProgress(done, 1.0));
+		    }
+		    model.getMetrics().record(BoardMetrics.Op.EXPORT, start);
+		    if (event.shouldCommit()) {
+			event.file = file.getPath();
+			event.bytes = file.length();
+			event.commit();
+		    }
+		    return null;
+		}
+	    };
+	task.progressProperty().addListener((o, oldValue, newValue) -> {
+		if (loading == null) loadProgress.setProgress(newValue.doubleValue());
+	    });
+	task.setOnRunning(e -> {
+		showStatus("Exporting " + file.getName());
+		if (loading == null) loadProgress.setVisible(true);
+	    });
+	task.setOnSucceeded(e -> {
+		if (loading == null) loadProgress.setVisible(false);
+		showStatus("Exported " + file.getName());
+	    });
+	task.setOnFailed(e -> {
+		if (loading == null) loadProgress.setVisible(false);
+		System.err.println("can't export " + file + ": " + task.getException());
+		showStatus("Can't export " + file.getName());
+	    });
+	Thread thread = new Thread(task, "exporter");
+	thread.setDaemon(true);
+	thread.start();
+    }
+
+    //the board is shown but not editable while a load adds to it,
+    private void setEditable(boolean editable) {
+	for (MenuItem item : new MenuItem[] { moveLeftItem, moveRightItem, moveUpItem,
+					      moveDownItem, moveCenterItem }) {
+	    item.setDisable(! editable);
 	}
+	undoItem.setDisable(! editable || ! undo.canUndo());
+	redoItem.setDisable(! editable || ! undo.canRedo());
+	//nor saved, which would write part of it over the file being read
+	saveItem.setDisable(! editable || file == null);
+	saveAsItem.setDisable(! editable);
+	exportItem.setDisable(! editable);
+    }
+
+    //a running load owns the status line
+    private void showStatus(String text) {
+	if (! statusLabel.textProperty().isBound()) statusLabel.setText(text);
+    }
+
+    private void cancelLoad() {
+	if (loading != null) loading.cancel();
+    }
+
+    private void endLoad() {
+	loading = null;
+	setEditable(true);
+	statusLabel.textProperty().unbind();
+	loadProgress.progressProperty().unbind();
+	loadProgress.setVisible(false);
+	cancelLoadButton.setVisible(false);
     }
     
     private void confirmClose(javafx.event.Event event) {
@@ -167,6 +611,7 @@ public class BoardController {
                 .filter(response -> response == ButtonType.CANCEL)
                 .ifPresent(response -> event.consume());
         }
+        if (! event.isConsumed()) stopJournal();
     }
     
 
@@ -184,25 +629,51 @@ public class BoardController {
 	width = new Length(4*12, Length.Unit.IN);
 	height = new Length(2*12, Length.Unit.IN);
 	
-        final Canvas canvas = new Canvas(width.getPixels(), height.getPixels());
-        final Canvas floatingCanvas = new Canvas(width.getPixels(), height.getPixels());
+        final Canvas canvas = new Canvas();
+        final Canvas floatingCanvas = new Canvas();
         GraphicsContext gc = canvas.getGraphicsContext2D();
 
 	model = new BoardModel(gc, floatingCanvas.getGraphicsContext2D());
+	model.setSpriteCache(new SpriteCache(SPRITE_CACHE_BYTES));
+	model.setTileCache(new TileCache(TILE_CACHE_BYTES));
+	undo = new UndoStack(model, UNDO_LIMIT);
+	trains = new TrainSim(model);
+	hud = new PerfHud(model);
+	model.getMetrics().register(METRICS_NAME);
+	undo.setOnChange(() -> {
+		undoItem.setDisable(loading != null || ! undo.canUndo());
+		redoItem.setDisable(loading != null || ! undo.canRedo());
+	    });
+
+        boardArea.getStyleClass().add("board");
+        boardArea.setMouseTransparent(true);
+        canvasPane.getChildren().addAll(boardArea, canvas, floatingCanvas, hud.getLabel());
 
-        canvasPane.getChildren().addAll(canvas, floatingCanvas);
+        for (Canvas c : new Canvas[] { canvas, floatingCanvas }) {
+            c.widthProperty().bind(canvasPane.widthProperty());
+            c.heightProperty().bind(canvasPane.heightProperty());
+        }
+        canvasPane.widthProperty().addListener((o, oldValue, newValue) -> model.redraw());
+        canvasPane.heightProperty().addListener((o, oldValue, newValue) -> model.redraw());
+        setView(1, 0, 0);
 
         //System.out.println(canvasPane.getHeight() + " = " + canvas.getHeight());
         
-        final ContextMenu contextMenu = makeContextMenu(gc);
+        final ContextMenu contextMenu = makeContextMenu();
+
+        //no edits to the board while it's loading; scrolling and zooming still work
+        canvasPane.addEventFilter(MouseEvent.ANY, (MouseEvent e) -> {
+                if (loading != null) e.consume();
+            });
 
         canvasPane.addEventHandler(MouseEvent.MOUSE_CLICKED, (MouseEvent t) -> {
                 if (t.getClickCount() > 1 && t.isStillSincePress()) {
-		    Point point = 
-			model.findPointAt(t.getX(), t.getY());
+		    double x = model.toBoardX(t.getX());
+		    double y = model.toBoardY(t.getY());
+		    Point point = model.findPointAt(x, y);
 		    if (point == null) {
 			//clicked empty spot, add shape
-			previewShape.ifPresent(s -> model.addShape(t.getX(), t.getY(), s));
+			previewShape.ifPresent(s -> model.addShape(x, y, s));
                         
 		    } else {
 			//clicked occupied spot, remove a shape
@@ -211,18 +682,19 @@ public class BoardController {
                 }  
             });
 
-        canvasPane.addEventHandler(MouseEvent.MOUSE_PRESSED, (MouseEvent t) -> {
+        canvasPane.addEventHandler(MouseEvent.MOUSE_PRESSED, hud.timed((MouseEvent t) -> {
                 if (t.getClickCount() != 1) return;
                 
                 switch(t.getButton()) {
                   case PRIMARY:
                     contextMenu.hide();
-                    cx = t.getX();
-                    cy = t.getY();
+                    cx = model.toBoardX(t.getX());
+                    cy = model.toBoardY(t.getY());
                     model.liftShape(cx, cy);
                     break;
                   case SECONDARY:
-                    cmPoint = model.findPointAt(t.getX(), t.getY());
+                    cmPoint = model.findPointAt(model.toBoardX(t.getX()),
+                                                model.toBoardY(t.getY()));
                     if (cmPoint != null) {
                         contextMenu.show(canvasPane, t.getScreenX(), t.getScreenY());
                     } else {
@@ -230,7 +702,7 @@ public class BoardController {
                     }
                     break;
                 }
-            });
+            }));
         
         canvasPane.addEventHandler(MouseEvent.MOUSE_RELEASED, (MouseEvent t)->{
                 if (! t.isControlDown()) {
@@ -238,12 +710,22 @@ public class BoardController {
                 }
             });
         
-        canvasPane.addEventHandler(MouseEvent.MOUSE_DRAGGED, (MouseEvent e)->{
-                double dx = e.getX();
-                double dy = e.getY();
+        canvasPane.addEventHandler(MouseEvent.MOUSE_DRAGGED, hud.timed((MouseEvent e)->{
+                double dx = model.toBoardX(e.getX());
+                double dy = model.toBoardY(e.getY());
                 model.moveShape(dx-cx, dy-cy);
                 cx = dx;
                 cy = dy;
+            }));
+
+        canvasPane.addEventHandler(ScrollEvent.SCROLL, (ScrollEvent e)->{
+                if (e.isControlDown()) {
+                    if (e.getDeltaY() != 0) {
+                        zoomAt(e.getDeltaY() > 0 ? ZOOM_STEP : 1/ZOOM_STEP, e.getX(), e.getY());
+                    }
+                } else {
+                    pan(-e.getDeltaX(), -e.getDeltaY());
+                }
             });
         
         closeItem.setOnAction((javafx.event.ActionEvent e) -> {stage.close();});
@@ -252,13 +734,15 @@ public class BoardController {
         fileChooser.getExtensionFilters()
 	    .addAll(
 		    new FileChooser.ExtensionFilter("XML Files", "*.xml"),
+		    new FileChooser.ExtensionFilter("Binary Layouts", "*" + BinaryLayout.EXTENSION),
 		    new FileChooser.ExtensionFilter("All Files", "*.*")
 		    );
        
+	cancelLoadButton.setOnAction((ActionEvent e) -> cancelLoad());
+
 	if (file != null) {
 	    updateFile(file, fileChooser);
-	    loadFile(file, canvas, floatingCanvas);
-	    model.redraw();
+	    loadFile(file);
 	}
        
 	final SizeDialog sizeDialog = new SizeDialog();
@@ -268,11 +752,13 @@ public class BoardController {
                 if (e.isConsumed()) return;
  
 		if (sizeDialog.prompt()) {
+		    cancelLoad();
 		    width = sizeDialog.width;
 		    height = sizeDialog.height;
 		
 		    model.reset(canvas.getWidth(), canvas.getHeight());
-                    resizeBoard(canvas, floatingCanvas);		
+		    undo.clear();
+                    resizeBoard();
                     file = null;
                     saveItem.setDisable(true);
                     stage.setTitle(TITLE_PREFIX);
@@ -286,23 +772,17 @@ public class BoardController {
 		fileChooser.setTitle("Open Layout");
 		File file = fileChooser.showOpenDialog(stage);
 		if (file != null) {
+		    cancelLoad();
 		    updateFile(file, fileChooser);
 		    model.reset(canvas.getWidth(), canvas.getHeight());
-		    loadFile(file, canvas, floatingCanvas);
-		    model.redraw();
+		    undo.clear();
+		    loadFile(file);
 		}
 	    });
 
 	saveItem.setOnAction((ActionEvent ev) -> {
 		if (file != null) {
-		    SavedBoard savedBoard = new SavedBoard();
-                    savedBoard.width = width.getInches();
-                    savedBoard.height = height.getInches();
-                        
-		    savedBoard.setAll(model.shapes);
-                    //savedBoard.setShapes(model.shapesMap);
-		    JAXB.marshal(savedBoard, file);
-                    model.makeClean();
+		    saveFile(file);
 		}
 	    });
                
@@ -317,13 +797,7 @@ public class BoardController {
                     }
 
                     updateFile(file, fileChooser);
-                    SavedBoard savedBoard = new SavedBoard();
-                    savedBoard.width = width.getInches();
-                    savedBoard.height = height.getInches();
-                    savedBoard.setAll(model.shapes);
-                    //savedBoard.setShapes(model.shapesMap);
-                    JAXB.marshal(savedBoard, file);
-                    model.makeClean();
+                    saveFile(file);
                 }
             });
   
@@ -332,6 +806,7 @@ public class BoardController {
         imageFileChooser.getExtensionFilters()
 	    .addAll(
 		    new FileChooser.ExtensionFilter("PNG Files", "*.png"),
+		    new FileChooser.ExtensionFilter("SVG Files", "*.svg"),
 		    new FileChooser.ExtensionFilter("All Files", "*.*")
 		    );
         imageFileChooser.setTitle("Export Image");
@@ -339,26 +814,12 @@ public class BoardController {
         exportItem.setOnAction((ActionEvent ev) -> {
                 File file = imageFileChooser.showSaveDialog(stage);
                 if (file != null) {
-                    WritableImage image;
-                    
-                    image = canvasPane.snapshot(null, null);
-                    /*
-                       // this will draw a transparent snapshot
-                    SnapshotParameters sp = new SnapshotParameters();
-                    sp.setFill(Color.TRANSPARENT);
-                    image = canvas.snapshot(sp, image);
-                    */
-
-                    try {
-                        ImageIO.write(SwingFXUtils.fromFXImage(image, null),
-                                      "png",
-                                      file);
-                    } catch (IOException ex) {
-                        System.out.println(ex.getMessage());
-                    }
+                    exportFile(file);
                 }
             });
         
+        undoItem.setOnAction((ActionEvent ev) -> undo.undo());
+        redoItem.setOnAction((ActionEvent ev) -> undo.redo());
         moveLeftItem.setOnAction((ActionEvent ev) -> model.goLeft());
         moveRightItem.setOnAction((ActionEvent ev) 
 				  -> model.goRight(width.getPixels()));
@@ -377,6 +838,22 @@ public class BoardController {
 
 	drawTiesItem.setOnAction((ActionEvent ev) 
 					-> model.drawTies(drawTiesItem.isSelected()));
+
+	jointCheckItem.setOnAction((ActionEvent ev)
+				   -> model.showJointCheck(jointCheckItem.isSelected()));
+
+	perfHudItem.setOnAction((ActionEvent ev) -> hud.show(perfHudItem.isSelected()));
+
+	runTrainsItem.setOnAction((ActionEvent ev) -> {
+		if (runTrainsItem.isSelected()) trains.start(); else trains.stop();
+	    });
+	clearTrainsItem.setOnAction((ActionEvent ev) -> trains.clearTrains());
+
+	zoomInItem.setOnAction((ActionEvent ev)
+			       -> zoomAt(ZOOM_STEP, canvasPane.getWidth()/2, canvasPane.getHeight()/2));
+	zoomOutItem.setOnAction((ActionEvent ev)
+				-> zoomAt(1/ZOOM_STEP, canvasPane.getWidth()/2, canvasPane.getHeight()/2));
+	zoomFitItem.setOnAction((ActionEvent ev) -> zoomToFit());
 	
         
         addTrackTree();
@@ -387,6 +864,7 @@ public class BoardController {
     private void addTrackTree() {
 
         final GraphicsContext gc = treePreview.getGraphicsContext2D();
+        final Pen pen = new FxPen(gc, Track.Detail.FULL);
         shapeTree.setRoot(shapeBox.getTree());
         
         gc.translate(treePreview.getWidth()/2, treePreview.getHeight()/2);
@@ -398,8 +876,8 @@ public class BoardController {
                 }
                 else if (newValue.isLeaf()) {
                     newValue.getValue().shape.ifPresent(shape -> {
-                            previewShape.ifPresent(old -> old.erase(gc));
-                            shape.draw(gc, Color.TRANSPARENT);
+                            previewShape.ifPresent(old -> old.erase(pen));
+                            shape.draw(pen, Color.TRANSPARENT);
                             previewShape = Optional.of(shape);
                         });
                 } else {
@@ -411,18 +889,28 @@ public class BoardController {
     
     public void addAllPlaces(List<SavedPlace> savedPlaces) 
     {
-	Map<String,Shape> shapesMap = new HashMap<>();
-	for (Shape s : shapeBox.getShapes()) {
-	    shapesMap.put(s.getId(), s);
+	for (Point p : toPoints(savedPlaces)) {
+	    model.addPoint(p);
 	}
-	
+    }
+
+    //only reads shapesMap, so this is safe off the application thread
+    private List<Point> toPoints(List<SavedPlace> savedPlaces) 
+    {
+	return toPoints(savedPlaces, shapesMap);
+    }
+
+    static List<Point> toPoints(List<SavedPlace> savedPlaces, Map<String,Shape> shapesMap)
+    {
+	List<Point> points = new ArrayList<>(savedPlaces.size());
 	for (SavedPlace sp : savedPlaces) {
 	    Shape s = shapesMap.get(sp.shape);
             if (s == null) s = shapesMap.get("solid");
 	    Point p = new Point(sp.x, sp.y, s);
 	    p.angle = sp.angle;
-	    model.addPoint(p);
+	    points.add(p);
 	}
+	return points;
     }
 
     public static class SavedPlace
@@ -433,7 +921,7 @@ public class BoardController {
         public String shape;
     }
     
-    private static class SavedBoard 
+    static class SavedBoard 
     {
         @XmlAttribute public final double dpi = Length.ppi;
         
@@ -446,14 +934,14 @@ public class BoardController {
         @XmlAttribute public double width;
         @XmlAttribute public double height;
         
-	public void setAll(List<Point> points) 
+	public void setAll(LayoutSnapshot layout) 
 	{
-	    for (Point place: points) {
+	    for (int i=0; i<layout.size(); ++i) {
 		SavedPlace sp = new SavedPlace();
-		sp.x = place.getX();
-		sp.y = place.getY();
-		sp.angle = place.angle;
-                sp.shape = place.shape.getId();
+		sp.x = layout.getX(i);
+		sp.y = layout.getY(i);
+		sp.angle = layout.getAngle(i);
+                sp.shape = layout.getShape(i);
 		tracks.add(sp);
 	    }
         }
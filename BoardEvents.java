@@ -0,0 +1,106 @@
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder events for the board's snapping, painting and file
+ * work.  Each is begun before the work and committed after it, and when
+ * a recording isn't taking them that costs next to nothing, so they're
+ * always there to turn on.
+ */
+public final class BoardEvents
+{
+    private BoardEvents() {}
+
+    @Name("trainboard.Snap")
+    @Label("Snap")
+    @Category("TrainBoard")
+    @Description("Fitting a dropped piece to the track and pieces around it")
+    public static final class Snap extends Event {
+	@Label("Shape")
+	String shape;
+
+	@Label("Joint Candidates")
+	@Description("Ends of other pieces looked at near each of its ends")
+	int joints;
+
+	@Label("Piece Candidates")
+	@Description("Pieces looked at for overlaps")
+	int pieces;
+
+	@Label("Joined")
+	boolean joined;
+
+	@Label("Pushed Aside")
+	boolean pushed;
+    }
+
+    @Name("trainboard.Repaint")
+    @Label("Repaint")
+    @Category("TrainBoard")
+    @Description("Redrawing the damaged parts of the board")
+    public static final class Repaint extends Event {
+	@Label("Regions")
+	int regions;
+
+	@Label("Points Examined")
+	int examined;
+
+	@Label("Points Drawn")
+	int drawn;
+    }
+
+    @Name("trainboard.Redraw")
+    @Label("Redraw")
+    @Category("TrainBoard")
+    @Description("Redrawing all of the board in view")
+    public static final class Redraw extends Event {
+	@Label("Points Drawn")
+	int drawn;
+    }
+
+    @Name("trainboard.Load")
+    @Label("Load Layout")
+    @Category("TrainBoard")
+    public static final class Load extends Event {
+	@Label("File")
+	String file;
+
+	@Label("Size")
+	@DataAmount
+	long bytes;
+
+	@Label("Pieces")
+	int pieces;
+    }
+
+    @Name("trainboard.Save")
+    @Label("Save Layout")
+    @Category("TrainBoard")
+    public static final class Save extends Event {
+	@Label("File")
+	String file;
+
+	@Label("Size")
+	@DataAmount
+	long bytes;
+
+	@Label("Pieces")
+	int pieces;
+    }
+
+    @Name("trainboard.Export")
+    @Label("Export Image")
+    @Category("TrainBoard")
+    public static final class Export extends Event {
+	@Label("File")
+	String file;
+
+	@Label("Size")
+	@DataAmount
+	long bytes;
+    }
+}
@@ -0,0 +1,141 @@
+import java.lang.management.ManagementFactory;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * How many of each board operation have been done and how long they
+ * took, as a running total, the longest, and a histogram.  Operations
+ * are recorded on whatever thread does them, and read over JMX on
+ * another, so recording takes no locks.
+ */
+public class BoardMetrics implements BoardMetricsMXBean
+{
+    public enum Op {
+	ADD, ERASE, LIFT, MOVE, RELEASE, ROTATE, ALIGN, REDRAW, LOAD, SAVE, EXPORT;
+
+	String label() {
+	    return name().toLowerCase();
+	}
+    }
+
+    //bucket i holds times up to LIMITS[i]; the last holds the rest
+    private static final long[] LIMITS = {
+	10, 30, 100, 300, 1_000, 3_000, 10_000, 30_000, 100_000, 300_000, 1_000_000
+    };
+
+    /** One operation's numbers, as read at one time. */
+    public static final class Timing {
+	private final long count;
+	private final long totalNanos;
+	private final long maxNanos;
+	private final long[] histogram;
+
+	Timing(long count, long totalNanos, long maxNanos, long[] histogram) {
+	    this.count = count;
+	    this.totalNanos = totalNanos;
+	    this.maxNanos = maxNanos;
+	    this.histogram = histogram;
+	}
+
+	public long getCount()          { return count; }
+	public double getTotalMillis()  { return totalNanos / 1e6; }
+	public double getMaxMillis()    { return maxNanos / 1e6; }
+	public double getMeanMillis()   { return count == 0 ? 0 : totalNanos / 1e6 / count; }
+
+	/** How many took up to each of the bucket limits, and then how many took longer. */
+	public long[] getHistogram()    { return histogram.clone(); }
+    }
+
+    private static final class Counter {
+	final LongAdder count = new LongAdder();
+	final LongAdder total = new LongAdder();
+	final AtomicLong max = new AtomicLong();
+	final AtomicLongArray buckets = new AtomicLongArray(LIMITS.length + 1);
+
+	void add(long nanos) {
+	    count.increment();
+	    total.add(nanos);
+	    max.accumulateAndGet(nanos, Math::max);
+	    long micros = nanos / 1000;
+	    int i = 0;
+	    while (i < LIMITS.length && micros > LIMITS[i]) ++i;
+	    buckets.incrementAndGet(i);
+	}
+
+	Timing read() {
+	    long[] histogram = new long[buckets.length()];
+	    for (int i=0; i<histogram.length; ++i) histogram[i] = buckets.get(i);
+	    return new Timing(count.sum(), total.sum(), max.get(), histogram);
+	}
+
+	void reset() {
+	    count.reset();
+	    total.reset();
+	    max.set(0);
+	    for (int i=0; i<buckets.length(); ++i) buckets.set(i, 0);
+	}
+    }
+
+    private final Map<Op, Counter> counters = new EnumMap<>(Op.class);
+    private final IntSupplier points;
+    private final IntSupplier held;
+
+    /**
+     * The sizes are read off the board from the JMX thread, so they're
+     * only a glance at a board that may be changing.
+     */
+    public BoardMetrics(IntSupplier points, IntSupplier held) {
+	this.points = points;
+	this.held = held;
+	for (Op op : Op.values()) counters.put(op, new Counter());
+    }
+
+    /** Record an operation that began at start, from System.nanoTime(). */
+    public void record(Op op, long start) {
+	counters.get(op).add(System.nanoTime() - start);
+    }
+
+    /** Show these under name on the platform MBean server. */
+    public void register(String name) {
+	try {
+	    ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(name));
+	} catch (JMException e) {
+	    System.err.println("can't register " + name + ": " + e);
+	}
+    }
+
+    @Override public int getPointCount() {
+	return points.getAsInt();
+    }
+
+    @Override public int getHeldCount() {
+	return held.getAsInt();
+    }
+
+    @Override public long[] getBucketLimitsMicros() {
+	return LIMITS.clone();
+    }
+
+    @Override public Map<String, Timing> getOperations() {
+	Map<String, Timing> timings = new LinkedHashMap<>();
+	for (Op op : Op.values()) timings.put(op.label(), counters.get(op).read());
+	return timings;
+    }
+
+    /** The numbers for one operation. */
+    public Timing get(Op op) {
+	return counters.get(op).read();
+    }
+
+    @Override public void reset() {
+	for (Counter c : counters.values()) c.reset();
+    }
+}
@@ -0,0 +1,19 @@
+import java.util.Map;
+
+/**
+ * What BoardMetrics shows over JMX, for watching an editing session
+ * in jconsole or Mission Control.
+ */
+public interface BoardMetricsMXBean
+{
+    int getPointCount();
+    int getHeldCount();
+
+    /** Upper bound of each histogram bucket but the last, in microseconds. */
+    long[] getBucketLimitsMicros();
+
+    /** Counts and times of each kind of operation, by name. */
+    Map<String, BoardMetrics.Timing> getOperations();
+
+    void reset();
+}
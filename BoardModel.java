@@ -1,7 +1,8 @@
+import javafx.scene.canvas.Canvas;
 import javafx.scene.canvas.GraphicsContext;
 import javafx.scene.paint.Color;
-import javafx.geometry.Point2D;
-import javafx.scene.transform.Rotate;
+import javafx.scene.shape.ArcType;
+import javafx.scene.shape.StrokeLineCap;
 
 import java.util.List;
 import java.util.Objects;
@@ -9,51 +10,227 @@ import java.util.Set;
 
 public class BoardModel 
 {
+    /** Told about each edit to the board, after it's made. */
+    public interface Listener {
+	void added(Point p, int index);
+	void removed(Point p, int index);
+	void moved(Point p, int index, double fromX, double fromY, double fromAngle);
+	void shifted(double dx, double dy);
+	void floated(Point p, boolean floating);
+    }
+
+    /**
+     * Told how much work each drag, snap and repaint did: how many points
+     * it looked at, and how many of those it drew.
+     */
+    public interface Stats {
+	void moved(int examined, int drawn);
+	void snapped(int examined);
+	void repainted(int examined, int drawn);
+    }
+
     public final List<Point> shapes = new java.util.ArrayList<>();
+    private final PointGrid grid = new PointGrid();
+    private final JointHash joints = new JointHash();
+    private final TrackGraph graph = new TrackGraph(joints);
+    private final JointCheck jointCheck = new JointCheck(joints, graph, this::damageJoint);
+    private final RouteFinder routes = new RouteFinder(graph);
+    private RouteFinder.Route route = null;
+    private final Set<Point> routePieces = new java.util.HashSet<>();
+
+    //scratch lists for index lookups, reused to keep hit tests and snaps allocation free
+    private final List<Point> nearPoints = new java.util.ArrayList<>();
+    private final List<Point> paintPoints = new java.util.ArrayList<>();
+    private final List<GlobalConnection> nearJoints = new java.util.ArrayList<>();
     private final GraphicsContext fixedContext;
     private final GraphicsContext floatingContext;
     private boolean dirty = false;
+    private long edits = 0;
+    private long repaints = 0;
+    private final List<Listener> listeners = new java.util.ArrayList<>();
+    //shapes before this have their index right
+    private int numbered = 0;
+
+    //areas of each layer to clear and redraw on the next repaint
+    private final DamageRegion fixedDamage = new DamageRegion();
+    private final DamageRegion floatingDamage = new DamageRegion();
     
     private static final Color POINT_COLOR_NORMAL = Color.GREEN;
     private static final Color POINT_COLOR_HELD = Color.BLUE;
     private static final Color POINT_COLOR_CLIP = Color.RED;
     private static final Color POINT_COLOR_OBSCURE = Color.YELLOW;
+    private static final Color JOINT_COLOR_OPEN = Color.ORANGE;
+    private static final Color JOINT_COLOR_NEAR_MISS = Color.RED;
+    private static final Color ROUTE_COLOR = Color.rgb(0, 128, 255, 0.6);
+    private static final Color TRAIN_COLOR = Color.DARKRED;
+
+    //in inches
+    private static final double TRAIN_LENGTH = 1.0;
+    private static final double TRAIN_WIDTH = 0.3;
+
+    //x, y and angle of each train, drawn on the floating layer
+    private double[] trains = null;
+
+    //room around a point's bounds for strokes and antialiasing
+    private static final double DAMAGE_PAD = 2;
 
     private boolean showInactiveJoiners = true;
+
+    private SpriteCache sprites = null;
+    private TileCache tiles = null;
+    private Stats stats = null;
+    private final BoardMetrics metrics;
+
+    //points looked at and drawn by the repaint going on
+    private int paintExamined = 0;
+    private int paintDrawn = 0;
+
+    //the canvases show the board scaled by scale, with originX,originY at the top left
+    private double scale = 1;
+    private double originX = 0;
+    private double originY = 0;
     
     public BoardModel(GraphicsContext fixed, GraphicsContext floating) {
 	fixedContext    = Objects.requireNonNull(fixed);
 	floatingContext = Objects.requireNonNull(floating);
+	metrics = new BoardMetrics(shapes::size, heldPoints::size);
+    }
+
+    public double getScale()   { return scale;   }
+    public double getOriginX() { return originX; }
+    public double getOriginY() { return originY; }
+
+    public double toBoardX(double x) { return x / scale + originX; }
+    public double toBoardY(double y) { return y / scale + originY; }
+    public double toScreenX(double x) { return (x - originX) * scale; }
+    public double toScreenY(double y) { return (y - originY) * scale; }
+
+    /**
+     * Show the board at the given scale with board position x,y at the
+     * top left of the canvases.
+     */
+    public void setView(double scale, double x, double y) {
+	this.scale = scale;
+	//keep the origin on a whole screen pixel so tiles land on pixel boundaries
+	this.originX = Math.round(x * scale) / scale;
+	this.originY = Math.round(y * scale) / scale;
+	if (tiles != null) tiles.setScale(scale);
+	Track.detail = Track.detailFor(Length.ppi * scale);
+	redraw();
+    }
+
+    /** Draw track from cached images; null draws every piece directly. */
+    public void setSpriteCache(SpriteCache sprites) {
+	this.sprites = sprites;
+    }
+
+    /** Paint the fixed layer from cached tiles; null draws it directly. */
+    public void setTileCache(TileCache tiles) {
+	this.tiles = tiles;
+	if (tiles != null) {
+	    tiles.clear();
+	    tiles.setScale(scale);
+	}
     }
     
+    /** Counts and times of the board's operations. */
+    public BoardMetrics getMetrics() {
+	return metrics;
+    }
+
+    /** Report the work done by each operation; null for no reports. */
+    public void setStats(Stats stats) {
+	this.stats = stats;
+    }
+
     public Color pointColorNormal() {
 	return showInactiveJoiners ? POINT_COLOR_NORMAL : Color.TRANSPARENT;
     }
     
+    public boolean isShowingInactiveJoiners() {
+	return showInactiveJoiners;
+    }
+
     public void showInactiveJoiners(boolean val) {
 	showInactiveJoiners = val;
-	redraw();
+	restyle();
     }
     
     public void colorCodeCurves(boolean val) {
 	boolean old = Track.colorCodeCurves;
 	Track.colorCodeCurves = val;
 	if (old != val) {
-	    redraw();
+	    restyle();
+	}
+    }
+
+    /** Mark open ends and near misses. */
+    public void showJointCheck(boolean val) {
+	if (val == jointCheck.isEnabled()) return;
+	jointCheck.setEnabled(val, shapes);
+	restyle();
+    }
+
+    public JointCheck getJointCheck() {
+	return jointCheck;
+    }
+
+    /** Finds train routes over the board. */
+    public RouteFinder getRoutes() {
+	return routes;
+    }
+
+    /**
+     * Move the trains to the given x, y and angle triples, repainting
+     * only the floating layer; null takes them off.
+     */
+    public void showTrains(double[] positions) {
+	damageTrains();
+	trains = positions;
+	damageTrains();
+	repaint(floatingContext, floatingDamage, true);
+    }
+
+    private void damageTrains() {
+	if (trains == null) return;
+	double r = Math.hypot(TRAIN_LENGTH, TRAIN_WIDTH) / 2 * Length.ppi;
+	for (int i=0; i+2<trains.length; i+=3) {
+	    damage(floatingDamage, trains[i] - r, trains[i+1] - r, trains[i] + r, trains[i+1] + r);
 	}
     }
 
+    /** Highlight a route until any of its pieces change, or stop if null. */
+    public void showRoute(RouteFinder.Route r) {
+	for (Point p : routePieces) damage(fixedDamage, p);
+	route = r;
+	routePieces.clear();
+	if (r != null) routePieces.addAll(r.getPieces());
+	for (Point p : routePieces) damage(fixedDamage, p);
+	repaint();
+    }
+
     public void drawTies(boolean val) {
 	boolean old = Track.drawTies;
 	Track.drawTies = val;
 	if (old != val) {
-	    redraw();
+	    restyle();
 	}
     }
     
-    private GraphicsContext getGc(Point point) {
+    private DamageRegion getDamage(Point point) {
 	return heldPoints.contains(point)
-	    ? floatingContext : fixedContext;
+	    ? floatingDamage : fixedDamage;
+    }
+
+    private Color getColor(Point point) {
+	if (heldPoints.contains(point)) return POINT_COLOR_HELD;
+	if (point.obscured) {
+	    for (Point held : heldPoints) {
+		if (! held.floating && point.overlaps(held)) return POINT_COLOR_CLIP;
+	    }
+	    return POINT_COLOR_OBSCURE;
+	}
+	return pointColorNormal();
     }
 
     public boolean isDirty() {
@@ -64,9 +241,45 @@ public class BoardModel
         dirty = false;
     }
 
+    /** Count of edits so far, to tell if the board changed since a save started. */
+    public long getEdits() {
+        return edits;
+    }
+
+    /** Count of repaints so far, shown or not. */
+    public long getRepaints() {
+        return repaints;
+    }
+
+    private void markDirty() {
+        dirty = true;
+        ++edits;
+    }
+
+    public void addListener(Listener l) {
+        listeners.add(l);
+    }
+
+    public void removeListener(Listener l) {
+        listeners.remove(l);
+    }
+
     public void reset(double width, double height) {
         shapes.clear();
+	numbered = 0;
+	grid.clear();
+	joints.clear();
+	graph.clear();
+	jointCheck.clear();
+	route = null;
+	routePieces.clear();
+	trains = null;
 	heldPoints.clear();
+	liftedFrom.clear();
+	obscuredPoints.clear();
+	fixedDamage.clear();
+	floatingDamage.clear();
+	if (tiles != null) tiles.clear();
         fixedContext.clearRect(0, 0, width, height);
         floatingContext.clearRect(0, 0, width, height);
 	dirty = false;
@@ -76,41 +289,423 @@ public class BoardModel
     public void addPoint(Point p) 
     {
 	shapes.add(p);
+	index(p);
+	damage(fixedDamage, p);
     }
     
-    public void redraw() {
+    private void index(Point p) {
+	grid.add(p);
+	joints.add(p);
+	join(p);
+    }
+
+    private void unindex(Point p) {
+	unjoin(p);
+	grid.remove(p);
+	joints.remove(p);
+    }
+
+    //held points join the graph again when they're dropped
+    private void reindex(Point p) {
+	boolean held = heldPoints.contains(p);
+	if (! held) unjoin(p);
+	grid.update(p);
+	joints.update(p);
+	if (! held) join(p);
+    }
+
+    private void join(Point p) {
+	graph.add(p);
+	jointCheck.update(p);
+    }
+
+    //while p's joints are still indexed where they were
+    private void unjoin(Point p) {
+	graph.remove(p);
+	jointCheck.update(p);
+	if (routePieces.contains(p)) showRoute(null);
+    }
+
+    /** Which pieces are joined to which. */
+    public TrackGraph getGraph() {
+	return graph;
+    }
+
+    private void damageJoint(GlobalConnection c) {
+	double r = c.point.shape.connectionSize();
+	damage(fixedDamage, c.x - r, c.y - r, c.x + r, c.y + r);
+    }
+
+    private void damage(DamageRegion region, Point p) {
+	double w2 = p.getWidth()/2;
+	double h2 = p.getHeight()/2;
+	damage(region, p.x-w2, p.y-h2, p.x+w2, p.y+h2);
+    }
+
+    /** Damage a rectangle given in board coordinates. */
+    private void damage(DamageRegion region, double x0, double y0, double x1, double y1) {
+	double pad = damagePad();
+	region.add(toScreenX(x0) - pad, toScreenY(y0) - pad,
+		   toScreenX(x1) + pad, toScreenY(y1) + pad);
+	if (region == fixedDamage && tiles != null) {
+	    pad /= scale;
+	    tiles.invalidate(x0 - pad, y0 - pad, x1 + pad, y1 + pad);
+	}
+    }
+
+    //in screen pixels; strokes past a point's bounds grow as we zoom in
+    private double damagePad() {
+	return DAMAGE_PAD * Math.max(scale, 1);
+    }
+
+    /** Damage both layers over the bounds of every point. */
+    private void damageExtent() {
+	if (shapes.isEmpty()) return;
+
+        double left = Double.MAX_VALUE;
+        double right = -Double.MAX_VALUE;
+        double top = Double.MAX_VALUE;
+        double bottom = -Double.MAX_VALUE;
+
         for (Point p : shapes) {
-	    p.draw(getGc(p), pointColorNormal());
+            left   = Math.min(left,   p.x - p.getWidth()/2);
+            right  = Math.max(right,  p.x + p.getWidth()/2);
+            top    = Math.min(top,    p.y - p.getHeight()/2);
+            bottom = Math.max(bottom, p.y + p.getHeight()/2);
         }
+	if (jointCheck.isEnabled()) {
+	    //joint marks stick out past the pieces
+	    double r = joints.maxRadius();
+	    left -= r;
+	    right += r;
+	    top -= r;
+	    bottom += r;
+	}
+	damage(fixedDamage, left, top, right, bottom);
+	damage(floatingDamage, left, top, right, bottom);
+    }
+
+    /**
+     * Clear and redraw the damaged parts of both layers.  Each damaged
+     * rectangle is clipped so points that stick out of it are only
+     * redrawn inside it, and points are drawn in the order they were
+     * added.  Anything outside the canvas is skipped.
+     */
+    public void repaint() {
+	BoardEvents.Repaint event = new BoardEvents.Repaint();
+	event.begin();
+	int regions = fixedDamage.size() + floatingDamage.size();
+	paintExamined = 0;
+	paintDrawn = 0;
+	repaint(fixedContext, fixedDamage, false);
+	repaint(floatingContext, floatingDamage, true);
+	++repaints;
+	if (stats != null) stats.repainted(paintExamined, paintDrawn);
+	if (event.shouldCommit()) {
+	    event.regions = regions;
+	    event.examined = paintExamined;
+	    event.drawn = paintDrawn;
+	    event.commit();
+	}
+    }
+
+    private void repaint(GraphicsContext gc, DamageRegion damage, boolean held) {
+	Canvas canvas = gc.getCanvas();
+	for (int i=0; i<damage.size(); ++i) {
+	    double x = Math.max(0, damage.getX(i));
+	    double y = Math.max(0, damage.getY(i));
+	    double w = Math.min(canvas.getWidth(), damage.getX(i) + damage.getWidth(i)) - x;
+	    double h = Math.min(canvas.getHeight(), damage.getY(i) + damage.getHeight(i)) - y;
+	    if (w <= 0 || h <= 0) continue;
+
+	    gc.save();
+	    gc.beginPath();
+	    gc.rect(x, y, w, h);
+	    gc.clip();
+	    gc.clearRect(x, y, w, h);
+	    if (tiles != null && ! held) {
+		tiles.paint(gc, originX, originY, x, y, w, h, fixedRenderer);
+	    } else {
+		gc.scale(scale, scale);
+		gc.translate(-originX, -originY);
+		drawPoints(gc, toBoardX(x), toBoardY(y), toBoardX(x + w), toBoardY(y + h), held);
+	    }
+	    gc.restore();
+	}
+	damage.clear();
+    }
+
+    private final TileCache.Renderer fixedRenderer
+	= (gc, x0, y0, x1, y1) -> drawPoints(gc, x0, y0, x1, y1, false);
+
+    /** Draw the points of one layer that reach into the given part of the board. */
+    private void drawPoints(GraphicsContext gc, double x0, double y0, double x1, double y1,
+			    boolean held) {
+	double pad = damagePad() / scale;
+	x0 -= pad;
+	y0 -= pad;
+	x1 += pad;
+	y1 += pad;
+	Pen pen = new FxPen(gc);
+	List<Point> found = grid.query(x0, y0, x1, y1, paintPoints);
+	paintExamined += found.size();
+	for (Point p : found) {
+	    if (heldPoints.contains(p) == held && p.intersects(x0, y0, x1, y1)) {
+		Color color = getColor(p);
+		if (sprites == null || ! sprites.draw(gc, p, color, scale)) {
+		    p.draw(pen, color);
+		}
+		++paintDrawn;
+	    }
+	}
+	if (held && trains != null) drawTrains(pen, x0, y0, x1, y1);
+	if (! held && route != null) drawRoute(pen, x0, y0, x1, y1);
+	if (! held && jointCheck.isEnabled()) drawJointCheck(pen, x0, y0, x1, y1);
+    }
+
+    private void drawTrains(Pen pen, double x0, double y0, double x1, double y1) {
+	double l = TRAIN_LENGTH * Length.ppi, w = TRAIN_WIDTH * Length.ppi;
+	double r = Math.hypot(l, w) / 2;
+	pen.setFill(TRAIN_COLOR);
+	for (int i=0; i+2<trains.length; i+=3) {
+	    double x = trains[i], y = trains[i+1];
+	    if (x < x0-r || x > x1+r || y < y0-r || y > y1+r) continue;
+	    pen.save();
+	    pen.translate(x, y);
+	    pen.rotate(trains[i+2]);
+	    pen.fillRoundRect(-w/2, -l/2, w, l, w/2, w/2);
+	    pen.restore();
+	}
+    }
+
+    //a band through each piece of the route, from the end it's entered by to the one it's left by
+    private void drawRoute(Pen pen, double x0, double y0, double x1, double y1) {
+	pen.setStroke(ROUTE_COLOR);
+	pen.setLineCap(StrokeLineCap.ROUND);
+	List<Point> pieces = route.getPieces();
+	for (int i=0; i<pieces.size(); ++i) {
+	    Point p = pieces.get(i);
+	    if (! p.intersects(x0, y0, x1, y1)) continue;
+	    GlobalConnection in = route.enteredBy(i), out = route.leftBy(i);
+	    pen.setLineWidth(p.shape.connectionSize() / 2);
+	    pen.strokeLine(in.x, in.y, out.x, out.y);
+	}
+    }
+
+    //a ring around each open end, and a heavier one around each near miss
+    private void drawJointCheck(Pen pen, double x0, double y0, double x1, double y1) {
+	double r = joints.maxRadius();
+	double half = Math.max(x1 - x0, y1 - y0) / 2 + r;
+	for (GlobalConnection c : joints.near((x0+x1)/2, (y0+y1)/2, half, nearJoints)) {
+	    JointCheck.State state = jointCheck.stateOf(c);
+	    if (state == null || c.x < x0-r || c.x > x1+r || c.y < y0-r || c.y > y1+r) continue;
+
+	    double cr = c.point.shape.connectionSize();
+	    boolean near = state == JointCheck.State.NEAR_MISS;
+	    pen.setStroke(near ? JOINT_COLOR_NEAR_MISS : JOINT_COLOR_OPEN);
+	    pen.setLineWidth(cr / (near ? 3 : 6));
+	    pen.strokeArc(c.x - cr*0.75, c.y - cr*0.75, cr*1.5, cr*1.5, 0, 360, ArcType.OPEN);
+	}
+    }
+
+    /** Draw every point in its normal color, for exporting the board. */
+    public void drawAll(GraphicsContext gc) {
+	drawAll(gc, 1);
+    }
+
+    /** Draw every point, magnified by scale. */
+    public void drawAll(GraphicsContext gc, double scale) {
+	gc.save();
+	gc.scale(scale, scale);
+	drawAll(new FxPen(gc, Track.detailFor(Length.ppi * scale)));
+	gc.restore();
+    }
+
+    /**
+     * Draw every point in its normal color with any pen, such as one
+     * writing a vector file.  Only reads the board, so this can be done
+     * on another thread with a board no one else is changing.
+     */
+    public void drawAll(Pen pen) {
+	for (Point p : shapes) {
+	    p.draw(pen, pointColorNormal());
+	}
+    }
+
+    /**
+     * Draw the points in the board rectangle x0,y0 - x1,y1 in their
+     * normal color, magnified by scale with x0,y0 at the origin, for
+     * exporting the board a piece at a time.
+     */
+    public void drawRegion(GraphicsContext gc, double scale,
+			   double x0, double y0, double x1, double y1) {
+	Pen pen = new FxPen(gc, Track.detailFor(Length.ppi * scale));
+	gc.save();
+	gc.scale(scale, scale);
+	gc.translate(-x0, -y0);
+	x0 -= DAMAGE_PAD;
+	y0 -= DAMAGE_PAD;
+	x1 += DAMAGE_PAD;
+	y1 += DAMAGE_PAD;
+	for (Point p : grid.query(x0, y0, x1, y1, paintPoints)) {
+	    if (p.intersects(x0, y0, x1, y1)) {
+		p.draw(pen, pointColorNormal());
+	    }
+	}
+	gc.restore();
+    }
+    
+    //for changes to how every point looks
+    private void restyle() {
+	if (tiles != null) tiles.clear();
+	redraw();
+    }
+
+    public void redraw() {
+	long start = System.nanoTime();
+	BoardEvents.Redraw event = new BoardEvents.Redraw();
+	event.begin();
+	fixedDamage.add(0, 0, fixedContext.getCanvas().getWidth(),
+			fixedContext.getCanvas().getHeight());
+	floatingDamage.add(0, 0, floatingContext.getCanvas().getWidth(),
+			   floatingContext.getCanvas().getHeight());
+	repaint();
+	metrics.record(BoardMetrics.Op.REDRAW, start);
+	if (event.shouldCommit()) {
+	    event.drawn = paintDrawn;
+	    event.commit();
+	}
     }
     
                 
     public void addShape(double x, double y, Shape shape) {
+	long start = System.nanoTime();
 	Point p = new Point(x,y, shape);
-	snapShape(fixedContext, p);
-	p.draw(fixedContext, pointColorNormal());
+	snapShape(p);
 	shapes.add(p);
-        dirty = true;
+	index(p);
+	damage(fixedDamage, p);
+        markDirty();
+	repaint();
+	for (Listener l : listeners) l.added(p, shapes.size()-1);
+	metrics.record(BoardMetrics.Op.ADD, start);
+    }
+
+    /**
+     * Put back a point exactly where it was, without snapping it, at
+     * index in the list of shapes.
+     */
+    public void restoreShape(Point p, int index) {
+	shapes.add(index, p);
+	numbered = Math.min(numbered, index);
+	index(p);
+	damage(fixedDamage, p);
+        markDirty();
+	repaint();
+	for (Listener l : listeners) l.added(p, index);
+    }
+
+    /** Remove every point. */
+    public void clear() {
+	damageExtent();
+	shapes.clear();
+	numbered = 0;
+	grid.clear();
+	joints.clear();
+	graph.clear();
+	jointCheck.clear();
+	route = null;
+	routePieces.clear();
+	trains = null;
+	heldPoints.clear();
+	liftedFrom.clear();
+	obscuredPoints.clear();
+	markDirty();
+	repaint();
     }
     
+    /**
+     * Where p is in shapes, or -1.  Points are numbered lazily from the
+     * first place the list changed, so looking up the same pieces again
+     * and again, as dragging does, doesn't scan the list each time.
+     */
+    int indexOf(Point p) {
+	int i = p.index;
+	if (i < 0 || i >= numbered) {
+	    for (; numbered < shapes.size(); ++numbered) shapes.get(numbered).index = numbered;
+	    i = p.index;
+	}
+	return i >= 0 && i < shapes.size() && shapes.get(i) == p ? i : -1;
+    }
+
     public void eraseShape(Point old) 
     {
-	old.erase(getGc(old));
-	shapes.remove(old);
-        dirty = true;
-        
-	for (Point p : shapes) {
-	    p.draw(getGc(p), pointColorNormal());
+	long start = System.nanoTime();
+	int index = indexOf(old);
+	if (index < 0) return;
+
+	damage(getDamage(old), old);
+	heldPoints.remove(old);
+	liftedFrom.remove(old);
+	obscuredPoints.remove(old);
+	shapes.remove(index);
+	old.index = -1;
+	numbered = Math.min(numbered, index);
+	unindex(old);
+        markDirty();
+	repaint();
+	for (Listener l : listeners) l.removed(old, index);
+	metrics.record(BoardMetrics.Op.ERASE, start);
+    }
+
+    /** Move a point to exactly x,y at angle, without snapping it. */
+    public void placeShape(Point point, double x, double y, double angle) {
+	double fromX = point.x, fromY = point.y, fromAngle = point.angle;
+	DamageRegion damage = getDamage(point);
+
+	damage(damage, point);
+	point.x = x;
+	point.y = y;
+	point.angle = angle;
+	reindex(point);
+	damage(damage, point);
+	markDirty();
+	repaint();
+	for (Listener l : listeners) l.moved(point, indexOf(point), fromX, fromY, fromAngle);
+    }
+
+    public void floatShape(Point point, boolean floating) {
+	if (point.floating == floating) return;
+	point.floating = floating;
+	if (! heldPoints.contains(point)) {
+	    unjoin(point);
+	    join(point);
 	}
+	damage(getDamage(point), point);
+	repaint();
+	for (Listener l : listeners) l.floated(point, floating);
     }
 
-    private final Set<Point> heldPoints = new java.util.HashSet<>();
+    private final Set<Point> heldPoints = new java.util.LinkedHashSet<>();
+
+    /** True while pieces are lifted for a drag. */
+    public boolean isHolding() {
+	return ! heldPoints.isEmpty();
+    }
+
+    //where each held point was lifted from, as x, y, angle
+    private final java.util.Map<Point, double[]> liftedFrom = new java.util.HashMap<>();
+
+    //points showing a clip or obscure indicator while something is dragged, and its color
+    private final java.util.Map<Point, Color> obscuredPoints = new java.util.LinkedHashMap<>();
+    //scratch set of what the held points obscure after a move
+    private final Set<Point> nowObscured = new java.util.LinkedHashSet<>();
     
     public Point findPointAt(double x, double y) {
         Point old = null;
         double minDist = Double.MAX_VALUE;
         
-        for (Point p : shapes) {
+        for (Point p : grid.query(x, y, x, y, nearPoints)) {
             if (p.covers(x, y)) {
                 double dx = p.x-x;
                 double dy = p.y-y;
@@ -128,92 +723,97 @@ public class BoardModel
 
     public void liftShape(double x, double y) 
     {
+        long start = System.nanoTime();
         Point old = findPointAt(x, y);
         if (old != null && ! heldPoints.contains(old)) {
-            old.erase(fixedContext);
-            redrawAround(old, pointColorNormal());
-            old.draw(floatingContext, POINT_COLOR_HELD);
+            damage(fixedDamage, old);
+            damage(floatingDamage, old);
             heldPoints.add(old);
+            unjoin(old);
+            liftedFrom.put(old, new double[] { old.x, old.y, old.angle });
+            repaint();
         }
+        metrics.record(BoardMetrics.Op.LIFT, start);
     }
     
-    private void snapShape(GraphicsContext gc, Point held) {
+    private void snapShape(Point held) {
         /*
          * If moved to overlap, push out of the way.
          * should handle multiple overlap, avoid putting 2 in same place.
          */
 
         Point ov = null;
+        Point near = null;
         double minDist = Double.MAX_VALUE;
         double minCpDist = Double.MAX_VALUE;
         GlobalConnection heldCp = null;
         GlobalConnection nearCp = null;
+        int jointCandidates = 0;
+        int pieceCandidates = 0;
 	
 	if (held.floating) return;
 
-        for (Point p : shapes) {
-	    if (p.floating) continue;
-	    
-            if (p != held && p.overlaps(held)) {
-		if (p.connections != null && held.connections != null) {
-		    for (GlobalConnection hc : held.connections) {
-			hc.moveTo(held.x, held.y, held.angle);
-			for (GlobalConnection pc : p.connections) {
-			    pc.moveTo(p.x, p.y, p.angle);
-			    double dx = pc.x - hc.x;
-			    double dy = pc.y - hc.y;
-			    
-			    double dist = Math.sqrt(dx*dx + dy*dy);
-			    //System.out.printf("dist = %.2f (%.2f, %.2f)\n", dist, dx, dy);
+	BoardEvents.Snap event = new BoardEvents.Snap();
+	event.begin();
+
+	if (held.connections != null) {
+	    held.placeConnections();
+	    for (GlobalConnection hc : held.connections) {
+		List<GlobalConnection> found = joints.near(hc.x, hc.y, joints.maxRadius(), nearJoints);
+		jointCandidates += found.size();
+		for (GlobalConnection pc : found) {
+		    Point p = pc.point;
+		    if (p == held || p.floating || ! p.overlaps(held)) continue;
+
+		    double dx = pc.x - hc.x;
+		    double dy = pc.y - hc.y;
 			    
-			    if (dist < minCpDist 
-                                //check connection size only on move?
-                                && dist < p.shape.connectionSize()) {
-				//System.out.printf("dist = %.2f -> %.2f\n", minCpDist, dist);
-				minCpDist = dist;
-				heldCp = hc;
-				nearCp = pc;
-				ov = p;
-			    }
+		    double dist = Math.sqrt(dx*dx + dy*dy);
+		    //System.out.printf("dist = %.2f (%.2f, %.2f)\n", dist, dx, dy);
 			    
-			}
+		    if (dist < minCpDist 
+			//check connection size only on move?
+			&& dist < p.shape.connectionSize()) {
+			//System.out.printf("dist = %.2f -> %.2f\n", minCpDist, dist);
+			minCpDist = dist;
+			heldCp = hc;
+			nearCp = pc;
+			near = p;
 		    }
-		} else {
-		    double dx = p.x-held.x;
-		    double dy = p.y-held.y;
+		}
+	    }
+	}
+
+	double w2 = held.getWidth()/2;
+	double h2 = held.getHeight()/2;
+        List<Point> found = grid.query(held.x-w2, held.y-h2, held.x+w2, held.y+h2, nearPoints);
+        pieceCandidates = found.size();
+        for (Point p : found) {
+	    if (p.floating) continue;
+	    if (p.connections != null && held.connections != null) continue;
+	    
+            if (p != held && p.overlaps(held)) {
+		double dx = p.x-held.x;
+		double dy = p.y-held.y;
                 
-		    double dist = Math.sqrt(dx*dx + dy*dy);
-		    if (dist < minDist) {
-			minDist = dist;
-			ov = p;
-		    }
-		    p.draw(gc, pointColorNormal());
+		double dist = Math.sqrt(dx*dx + dy*dy);
+		if (dist < minDist) {
+		    minDist = dist;
+		    ov = p;
 		}
             }
         }
 
-	//need to figure out which layer it was on
-	GraphicsContext heldGc = getGc(held);
-	
 	if (heldCp != null) {
-	    held.erase(heldGc);
-            ov.draw(gc, pointColorNormal());
-            ov.obscured = false;
-
 	    held.x += nearCp.x - heldCp.x;
 	    held.y += nearCp.y - heldCp.y;
 	    
-            double angle = ov.angle + nearCp.connection.angle - heldCp.connection.angle + 180;
-            Point2D p2d = new Rotate(angle - held.angle, nearCp.x, nearCp.y)
-                .transform(held.x,held.y);
-            
+            double angle = near.angle + nearCp.connection.angle - heldCp.connection.angle + 180;
+            held.rotateAbout(angle - held.angle, nearCp.x, nearCp.y);
             held.angle = angle % 360;
-            held.x = p2d.getX();
-            held.y = p2d.getY();
-            redrawAround(held, pointColorNormal());
             //if this landed exactly an another, snap it again; otherwise we're done
             ov = null;
-            for (Point same : shapes) {
+            for (Point same : grid.query(held.x, held.y, held.x, held.y, nearPoints)) {
                 if (same != held && held.x == same.x && same.y == held.y) {
                     ov = same;
                 }
@@ -221,15 +821,8 @@ public class BoardModel
 	}
 
 	if (ov != null) {
-            held.erase(heldGc);
-            ov.draw(gc, pointColorNormal());
-            ov.obscured = false;
-
-            Point2D newPoint;
-	    newPoint = new Rotate(-ov.angle, ov.x, ov.y).transform(held.x, held.y);
+            held.rotateAbout(-ov.angle, ov.x, ov.y);
             held.angle = ov.angle;
-            held.x = newPoint.getX();
-            held.y = newPoint.getY();
 
             double xd = Math.abs(held.x - ov.x);
             double yd = Math.abs(held.y - ov.y);
@@ -245,142 +838,183 @@ public class BoardModel
                 held.x = (held.x > ov.x) ? ov.x+width : ov.x-width;
             }
 
-	    newPoint = new Rotate(ov.angle, ov.x, ov.y)
-		.transform(held.x, held.y);
+            held.rotateAbout(ov.angle, ov.x, ov.y);
             held.angle = ov.angle;
-            held.x = newPoint.getX();
-            held.y = newPoint.getY();
+        }
+        if (stats != null) stats.snapped(jointCandidates + pieceCandidates);
+        if (event.shouldCommit()) {
+            event.shape = held.shape.getId();
+            event.joints = jointCandidates;
+            event.pieces = pieceCandidates;
+            event.joined = heldCp != null;
+            event.pushed = ov != null;
+            event.commit();
         }
     }
     
 
     public void releaseShape()
     {
+        long start = System.nanoTime();
         for (Point old : heldPoints) {
-            snapShape(fixedContext, old); //how to snap multiple shapes?
-	    old.erase(floatingContext);
-            old.draw(fixedContext, pointColorNormal());
+            damage(floatingDamage, old);
+            snapShape(old); //how to snap multiple shapes?
+            reindex(old);
+            damage(fixedDamage, old);
         }
+        List<Point> released = new java.util.ArrayList<>(heldPoints);
         heldPoints.clear();
+        for (Point p : released) join(p);
+        clearObscured();
+        repaint();
+
+        for (Point p : released) {
+            double[] from = liftedFrom.remove(p);
+            if (from[0] == p.x && from[1] == p.y && from[2] == p.angle) continue;
+            int index = indexOf(p);
+            for (Listener l : listeners) l.moved(p, index, from[0], from[1], from[2]);
+        }
+        metrics.record(BoardMetrics.Op.RELEASE, start);
     }
-    
-    private void redrawAround(Point point, Color color) {
-        for (Point p : shapes) {
-            if (p == point) continue;
-            //TODO - test correct redraws -w- multi-select,
-            //maybe redrawaround on floating context, too.
-            //if (heldPoints.contains(p)) continue;
 
-            if (point.obscures(p)) {
-                p.draw(getGc(p), color);
-            }
+    private void clearObscured() {
+        for (Point p : obscuredPoints.keySet()) {
+            p.obscured = false;
+            damage(fixedDamage, p);
         }
+        obscuredPoints.clear();
     }
-    
 
     public void moveShape(double x, double y) {
+        if (heldPoints.isEmpty()) return;
+
+        long start = System.nanoTime();
         for (Point old : heldPoints) {
-	    old.erase(floatingContext);
+            damage(floatingDamage, old);
+            old.x += x;
+            old.y += y;
+            reindex(old);
+            damage(floatingDamage, old);
+            markDirty();
+        }
 
-            for (Point p : shapes) {
-                if (heldPoints.contains(p)) continue;
-		
+        //flag what the held points now clip or obscure
+        int examined = 0;
+        nowObscured.clear();
+        for (Point old : heldPoints) {
+            if (old.floating) continue;
+
+            double w2 = old.getWidth()/2 + 1;
+            double h2 = old.getHeight()/2 + 1;
+            List<Point> found = grid.query(old.x-w2, old.y-h2, old.x+w2, old.y+h2, nearPoints);
+            examined += found.size();
+            for (Point p : found) {
                 //TODO - only ovelap closest shape
-		if (old.floating && p.obscures(old)) {
-		    p.obscured = true;
-		}
-                else if (p.overlaps(old)) {
-                    p.draw(fixedContext, POINT_COLOR_CLIP);
-                    p.obscured = true;
-                }
-                else if (p.obscures(old)) {
-                    p.draw(fixedContext, POINT_COLOR_OBSCURE);
-                    p.obscured = true;
-                }
-                else if (p.obscured) {
-		    //redraw to reset indicator color
-		    //can leave traces in round corners or rotated edges
-		    p.erase(fixedContext);
-                    redrawAround(p, pointColorNormal());
-                    p.draw(fixedContext, pointColorNormal());
-                    p.obscured = false;
-                    //System.out.printf("Redraw %.1f,%.1f\n", p.x, p.y);
+                if (! heldPoints.contains(p) && p.obscures(old)) {
+                    nowObscured.add(p);
                 }
             }
         }
-        for (Point old : heldPoints) {
-            old.x += x;
-            old.y += y;
-	    old.draw(floatingContext, POINT_COLOR_HELD);
-            dirty = true;
+
+        //only repaint points whose indicator came, went or changed color
+        for (java.util.Iterator<Point> i = obscuredPoints.keySet().iterator(); i.hasNext(); ) {
+            Point p = i.next();
+            if (! nowObscured.contains(p)) {
+                p.obscured = false;
+                damage(fixedDamage, p);
+                i.remove();
+            }
         }
-        
+        for (Point p : nowObscured) {
+            p.obscured = true;
+            Color color = getColor(p);
+            if (obscuredPoints.put(p, color) != color) damage(fixedDamage, p);
+        }
+        repaint();
+        if (stats != null) stats.moved(examined + paintExamined, paintDrawn);
+        metrics.record(BoardMetrics.Op.MOVE, start);
     }
 
     public void rotateShape(Point point, double angle) {
         //should support multi-rotate?
-        GraphicsContext pgc = getGc(point);
+        long start = System.nanoTime();
+        DamageRegion damage = getDamage(point);
         
-        point.erase(pgc);
+        double fromAngle = point.angle;
+        damage(damage, point);
         point.angle += angle;
-        point.draw(pgc, pointColorNormal());
-        dirty = true;
+        reindex(point);
+        damage(damage, point);
+        markDirty();
+        repaint();
+        if (! heldPoints.contains(point)) {
+            int index = indexOf(point);
+            for (Listener l : listeners) l.moved(point, index, point.x, point.y, fromAngle);
+        }
+        metrics.record(BoardMetrics.Op.ROTATE, start);
+    }
+
+    public void moveAll(double dx, double dy) {
+        damageExtent();
+        //moving everything together leaves the same pieces joined
+        for (Point p : shapes) {
+            p.x += dx;
+            p.y += dy;
+            grid.update(p);
+            joints.update(p);
+        }
+        for (double[] from : liftedFrom.values()) {
+            from[0] += dx;
+            from[1] += dy;
+        }
+        damageExtent();
+        markDirty();
+        repaint();
+        for (Listener l : listeners) l.shifted(dx, dy);
     }
     
-    //fixme - erase/redraw each point on right gc.
     public void goLeft() {
+        long start = System.nanoTime();
         double left = Double.MAX_VALUE;
         for (Point p : shapes) {
             left = Math.min(left, p.x - p.getWidth()/2);
         }
-        for (Point p : shapes) {
-            p.erase(getGc(p));
-            p.x -= left;
-        }
-        redraw();
-        dirty = true;
+        moveAll(-left, 0);
+        metrics.record(BoardMetrics.Op.ALIGN, start);
     }
 
     public void goRight(double bound) {
+        long start = System.nanoTime();
         double right = Double.MIN_VALUE;
         for (Point p : shapes) {
             right = Math.max(right, p.x + p.getWidth()/2);
         }
-        for (Point p : shapes) {
-            p.erase(getGc(p));
-            p.x += (bound - right);
-        }
-        redraw();
-        dirty = true;
+        moveAll(bound - right, 0);
+        metrics.record(BoardMetrics.Op.ALIGN, start);
     }
 
     public void goUp() {
+        long start = System.nanoTime();
         double top = Double.MAX_VALUE;
         for (Point p : shapes) {
             top = Math.min(top, p.y - p.getHeight()/2);
         }
-        for (Point p : shapes) {
-            p.erase(getGc(p));
-            p.y -= top;
-        }
-        redraw();
-        dirty = true;
+        moveAll(0, -top);
+        metrics.record(BoardMetrics.Op.ALIGN, start);
     }
 
     public void goDown(double bound) {
+        long start = System.nanoTime();
         double bottom = Double.MIN_VALUE;
         for (Point p : shapes) {
             bottom = Math.max(bottom, p.y + p.getHeight()/2);
         }
-        for (Point p : shapes) {
-            p.erase(getGc(p));
-            p.y += (bound - bottom);
-        }
-        redraw();
-        dirty = true;
+        moveAll(0, bound - bottom);
+        metrics.record(BoardMetrics.Op.ALIGN, start);
     }
 
     public void goCenter(double xbound, double ybound) {
+        long start = System.nanoTime();
         double left = Double.MAX_VALUE;
         double right = Double.MIN_VALUE;
         double top = Double.MAX_VALUE;
@@ -395,15 +1029,8 @@ public class BoardModel
 
         double xdelta = (left + right - xbound)  / 2;
         double ydelta = (top + bottom - ybound) / 2;
-        
-
-        for (Point p : shapes) {
-            p.erase(getGc(p));
-            p.x -= xdelta;
-            p.y -= ydelta;
-        }
-        redraw();
-        dirty = true;
+        moveAll(-xdelta, -ydelta);
+        metrics.record(BoardMetrics.Op.ALIGN, start);
     }
         
 }
@@ -0,0 +1,66 @@
+/**
+ * Open addressed map from grid cell coordinates to a per-cell value,
+ * so looking up a cell doesn't box its key.  Cells are never removed,
+ * callers leave an empty value behind instead.
+ */
+class CellMap<V>
+{
+    private long[] keys = new long[64];
+    private Object[] values = new Object[64];
+    private int size = 0;
+
+    private static long key(int cx, int cy) {
+	return ((long)cx << 32) | (cy & 0xffffffffL);
+    }
+
+    private static int hash(long k) {
+	long h = k * 0x9E3779B97F4A7C15L;
+	return (int)(h ^ (h >>> 32));
+    }
+
+    private int slot(long[] keys, Object[] values, long k) {
+	int mask = keys.length - 1;
+	int i = hash(k) & mask;
+	while (values[i] != null && keys[i] != k) {
+	    i = (i + 1) & mask;
+	}
+	return i;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(int cx, int cy) {
+	return (V)values[slot(keys, values, key(cx, cy))];
+    }
+
+    public void put(int cx, int cy, V value) {
+	long k = key(cx, cy);
+	int i = slot(keys, values, k);
+	if (values[i] == null) {
+	    if (++size * 2 > keys.length) {
+		grow();
+		i = slot(keys, values, k);
+	    }
+	    keys[i] = k;
+	}
+	values[i] = value;
+    }
+
+    public void clear() {
+	java.util.Arrays.fill(values, null);
+	size = 0;
+    }
+
+    private void grow() {
+	long[] nk = new long[keys.length * 2];
+	Object[] nv = new Object[values.length * 2];
+	for (int i=0; i<keys.length; ++i) {
+	    if (values[i] != null) {
+		int j = slot(nk, nv, keys[i]);
+		nk[j] = keys[i];
+		nv[j] = values[i];
+	    }
+	}
+	keys = nk;
+	values = nv;
+    }
+}
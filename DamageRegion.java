@@ -0,0 +1,71 @@
+/**
+ * Rectangles of a layer that need to be cleared and redrawn.
+ * Overlapping rectangles are merged as they are added, and once there
+ * are too many to be worth tracking they collapse into their union.
+ */
+public class DamageRegion
+{
+    private static final int MAX_RECTS = 32;
+
+    private final double[] x0 = new double[MAX_RECTS];
+    private final double[] y0 = new double[MAX_RECTS];
+    private final double[] x1 = new double[MAX_RECTS];
+    private final double[] y1 = new double[MAX_RECTS];
+    private int count = 0;
+
+    public int size()         { return count;        }
+    public boolean isEmpty()  { return count == 0;   }
+    public void clear()       { count = 0;           }
+
+    public double getX(int i)      { return x0[i];         }
+    public double getY(int i)      { return y0[i];         }
+    public double getWidth(int i)  { return x1[i] - x0[i]; }
+    public double getHeight(int i) { return y1[i] - y0[i]; }
+
+    /** Add a rectangle, snapped outward to whole pixels. */
+    public void add(double left, double top, double right, double bottom) {
+	left = Math.floor(left);
+	top = Math.floor(top);
+	right = Math.ceil(right);
+	bottom = Math.ceil(bottom);
+	if (right <= left || bottom <= top) return;
+
+	//absorb everything this touches; growing may touch more
+	for (int i=0; i<count; ) {
+	    if (left <= x1[i] && right >= x0[i] && top <= y1[i] && bottom >= y0[i]) {
+		left = Math.min(left, x0[i]);
+		top = Math.min(top, y0[i]);
+		right = Math.max(right, x1[i]);
+		bottom = Math.max(bottom, y1[i]);
+		removeAt(i);
+		i = 0;
+	    } else {
+		++i;
+	    }
+	}
+
+	if (count == MAX_RECTS) {
+	    for (int i=0; i<count; ++i) {
+		left = Math.min(left, x0[i]);
+		top = Math.min(top, y0[i]);
+		right = Math.max(right, x1[i]);
+		bottom = Math.max(bottom, y1[i]);
+	    }
+	    count = 0;
+	}
+
+	x0[count] = left;
+	y0[count] = top;
+	x1[count] = right;
+	y1[count] = bottom;
+	++count;
+    }
+
+    private void removeAt(int i) {
+	--count;
+	x0[i] = x0[count];
+	y0[i] = y0[count];
+	x1[i] = x1[count];
+	y1[i] = y1[count];
+    }
+}
@@ -0,0 +1,376 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Append-only log of the edits made to a board since its layout file
+ * was last saved, kept next to the layout so a crash loses at most the
+ * last moment of work.  Records are encoded on the application thread
+ * and written by a journal thread, which syncs them to disk in batches.
+ * Once the log outgrows the board it is compacted: the journal thread
+ * writes a checkpoint, a record to clear the board and one to add each
+ * piece, and swaps it in for the old log.
+ */
+public class EditJournal implements BoardModel.Listener
+{
+    public static final String SUFFIX = ".journal";
+
+    private static final int MAGIC = 0x54424a4c; //"TBJL"
+    private static final int VERSION = 2;
+    private static final int HEADER_SIZE = 8;
+
+    private static final byte ADD = 'A';
+    private static final byte REMOVE = 'R';
+    private static final byte MOVE = 'M';
+    private static final byte SHIFT = 'S';
+    private static final byte CLEAR = 'C';
+
+    //how often pending records are synced to disk
+    private static final long SYNC_MS = 500;
+    //records before compacting, at least; more on big boards
+    private static final int COMPACT_MIN = 4096;
+
+    private static final Object STOP = new Object();
+    private static final Object RESTART = new Object();
+    private static final Object DISCARD = new Object();
+
+    //the journal thread for each journal file, until it's done with the file
+    private static final Map<File, Thread> writers = new ConcurrentHashMap<>();
+
+    private final File file;
+    private final BoardModel model;
+    private final BlockingQueue<Object> queue = new LinkedBlockingQueue<>();
+    private final Thread writer;
+    private final ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+    private final DataOutputStream record = new DataOutputStream(bytes);
+    private int records = 0;
+
+    //owned by the journal thread
+    private FileOutputStream out;
+    private OutputStream buffered;
+    private volatile IOException failure = null;
+
+    public static File journalFor(File layout) {
+	return new File(layout.getAbsoluteFile().getParentFile(), layout.getName() + SUFFIX);
+    }
+
+    /**
+     * True if the layout has a journal with edits made after it was
+     * saved.  A journal just closed or discarded is finished with first,
+     * so edits thrown away aren't offered back.
+     */
+    public static boolean hasEdits(File layout) {
+	File journal = journalFor(layout);
+	awaitWriter(journal);
+	return journal.length() > HEADER_SIZE && journal.lastModified() >= layout.lastModified();
+    }
+
+    /**
+     * Move a layout's journal out of the way, keeping its edits, when
+     * they can't be replayed.  Returns where it went.
+     */
+    public static File setAside(File layout) throws IOException {
+	File journal = journalFor(layout);
+	awaitWriter(journal);
+	File aside = new File(journal.getPath() + ".bad");
+	Files.move(journal.toPath(), aside.toPath(), StandardCopyOption.REPLACE_EXISTING);
+	return aside;
+    }
+
+    //wait for the journal thread that last had the file to be done with it
+    private static void awaitWriter(File journal) {
+	Thread last = writers.get(journal);
+	if (last != null) {
+	    try {
+		last.join();
+	    } catch (InterruptedException e) {
+		Thread.currentThread().interrupt();
+	    }
+	}
+    }
+
+    /**
+     * Start an empty journal for the board, which should match its
+     * layout file, replacing any journal already there.
+     */
+    public EditJournal(File layout, BoardModel model) throws IOException {
+	this.file = journalFor(layout);
+	this.model = model;
+	//a journal just closed or discarded for this file may not be done with it yet
+	awaitWriter(file);
+	open(file);
+	writer = new Thread(this::run, "edit journal");
+	writer.setDaemon(true);
+	writers.put(file, writer);
+	writer.start();
+    }
+
+    private void open(File f) throws IOException {
+	out = new FileOutputStream(f);
+	buffered = new BufferedOutputStream(out);
+	DataOutputStream header = new DataOutputStream(buffered);
+	header.writeInt(MAGIC);
+	header.writeInt(VERSION);
+	header.flush();
+    }
+
+    /** The last error writing the journal, or null. */
+    public IOException getFailure() {
+	return failure;
+    }
+
+    @Override public void added(Point p, int index) {
+	try {
+	    record.writeByte(ADD);
+	    record.writeInt(index);
+	    writePlace(record, p.shape.getId(), p.x, p.y, p.angle);
+	} catch (IOException e) {
+	    throw new IllegalStateException(e);
+	}
+	send();
+    }
+
+    @Override public void removed(Point p, int index) {
+	try {
+	    record.writeByte(REMOVE);
+	    record.writeInt(index);
+	} catch (IOException e) {
+	    throw new IllegalStateException(e);
+	}
+	send();
+    }
+
+    @Override public void moved(Point p, int index, double fromX, double fromY, double fromAngle) {
+	try {
+	    record.writeByte(MOVE);
+	    record.writeInt(index);
+	    record.writeDouble(p.x);
+	    record.writeDouble(p.y);
+	    record.writeDouble(p.angle);
+	} catch (IOException e) {
+	    throw new IllegalStateException(e);
+	}
+	send();
+    }
+
+    //floating isn't saved, so isn't journaled either
+    @Override public void floated(Point p, boolean floating) {
+    }
+
+    @Override public void shifted(double dx, double dy) {
+	try {
+	    record.writeByte(SHIFT);
+	    record.writeDouble(dx);
+	    record.writeDouble(dy);
+	} catch (IOException e) {
+	    throw new IllegalStateException(e);
+	}
+	send();
+    }
+
+    private static void writePlace(DataOutputStream out, String shape,
+				   double x, double y, double angle) throws IOException {
+	out.writeUTF(shape);
+	out.writeDouble(x);
+	out.writeDouble(y);
+	out.writeDouble(angle);
+    }
+
+    private void send() {
+	if (failure == null) queue.add(bytes.toByteArray());
+	bytes.reset();
+	if (++records > Math.max(COMPACT_MIN, model.shapes.size())) {
+	    checkpoint();
+	}
+    }
+
+    /** Compact the journal down to the board as it is now. */
+    public void checkpoint() {
+	queue.add(LayoutSnapshot.of(Length.ppi, 0, 0, model.shapes));
+	records = 0;
+    }
+
+    /** Empty the journal, after the board has been saved. */
+    public void restart() {
+	queue.add(RESTART);
+	records = 0;
+    }
+
+    /**
+     * Have the journal thread write out what's left and stop.  This
+     * doesn't wait for it, so the application thread never waits on a
+     * sync; see await.
+     */
+    public void close() {
+	queue.add(STOP);
+    }
+
+    /**
+     * Have the journal thread stop and delete the journal, when its edits
+     * are saved or unwanted.  Doesn't wait either.
+     */
+    public void discard() {
+	if (writer.isAlive()) {
+	    queue.add(DISCARD);
+	} else {
+	    //it stopped on an error, so it can't
+	    file.delete();
+	}
+    }
+
+    /** Wait for the journal thread to finish, after close or discard. */
+    public void await() throws InterruptedException {
+	writer.join();
+    }
+
+    private void run() {
+	long synced = System.currentTimeMillis();
+	boolean pending = false;
+	boolean discarding = false;
+	try {
+	    while (true) {
+		Object item = queue.poll(SYNC_MS, TimeUnit.MILLISECONDS);
+		if (item == STOP) break;
+		if (item == DISCARD) {
+		    discarding = true;
+		    break;
+		}
+		if (item == RESTART) {
+		    replace(null);
+		    pending = false;
+		} else if (item instanceof byte[]) {
+		    buffered.write((byte[])item);
+		    pending = true;
+		} else if (item instanceof LayoutSnapshot) {
+		    replace((LayoutSnapshot)item);
+		    pending = false;
+		}
+
+		if (pending && (queue.isEmpty() || System.currentTimeMillis() - synced >= SYNC_MS)) {
+		    sync();
+		    synced = System.currentTimeMillis();
+		    pending = false;
+		}
+	    }
+	    if (! discarding) sync();
+	} catch (IOException e) {
+	    failure = e;
+	    System.err.println("edit journal failed: " + e);
+	} catch (InterruptedException e) {
+	    //just stop
+	} finally {
+	    try {
+		buffered.close();
+	    } catch (IOException e) {
+		//nothing more to do
+	    }
+	    if (discarding) file.delete();
+	    writers.remove(file, writer);
+	}
+    }
+
+    private void sync() throws IOException {
+	buffered.flush();
+	out.getChannel().force(false);
+    }
+
+    //swap in a new journal holding the snapshot, or nothing
+    private void replace(LayoutSnapshot layout) throws IOException {
+	File tmp = new File(file.getPath() + ".tmp");
+	buffered.close();
+	open(tmp);
+	if (layout != null) {
+	    DataOutputStream data = new DataOutputStream(buffered);
+	    data.writeByte(CLEAR);
+	    for (int i=0; i<layout.size(); ++i) {
+		data.writeByte(ADD);
+		data.writeInt(i);
+		writePlace(data, layout.getShape(i), layout.getX(i), layout.getY(i),
+			   layout.getAngle(i));
+	    }
+	}
+	sync();
+	buffered.close();
+	try {
+	    Files.move(tmp.toPath(), file.toPath(),
+		       StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+	} catch (AtomicMoveNotSupportedException e) {
+	    Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+	}
+	out = new FileOutputStream(file, true);
+	buffered = new BufferedOutputStream(out);
+    }
+
+    /**
+     * Apply the edits in a layout's journal to the board, which should
+     * hold the layout as it was saved.  A record cut short by a crash
+     * ends the replay.  Returns the number of edits applied.
+     */
+    public static int replay(File layout, BoardModel model, Map<String,Shape> shapes)
+	throws IOException {
+	int n = 0;
+	try (DataInputStream in = new DataInputStream(
+	         new BufferedInputStream(new FileInputStream(journalFor(layout))))) {
+	    if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+		throw new IOException(journalFor(layout) + ": not an edit journal");
+	    }
+	    List<Point> points = model.shapes;
+	    while (true) {
+		int type = in.read();
+		if (type < 0) break;
+
+		switch (type) {
+		case ADD: {
+		    int index = in.readInt();
+		    String id = in.readUTF();
+		    Shape s = shapes.get(id);
+		    if (s == null) s = shapes.get("solid");
+		    Point p = new Point(in.readDouble(), in.readDouble(), s);
+		    p.angle = in.readDouble();
+		    model.restoreShape(p, index);
+		    break;
+		}
+		case REMOVE:
+		    model.eraseShape(points.get(in.readInt()));
+		    break;
+		case MOVE: {
+		    Point p = points.get(in.readInt());
+		    model.placeShape(p, in.readDouble(), in.readDouble(), in.readDouble());
+		    break;
+		}
+		case SHIFT:
+		    model.moveAll(in.readDouble(), in.readDouble());
+		    break;
+		case CLEAR:
+		    model.clear();
+		    break;
+		default:
+		    throw new IOException("bad journal record " + type);
+		}
+		++n;
+	    }
+	} catch (EOFException e) {
+	    //the last record was cut short
+	} catch (IndexOutOfBoundsException e) {
+	    throw new IOException("journal doesn't match the layout", e);
+	}
+	return n;
+    }
+}
@@ -0,0 +1,73 @@
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.paint.Color;
+import javafx.scene.shape.ArcType;
+import javafx.scene.shape.StrokeLineCap;
+import javafx.scene.transform.Affine;
+
+/** Draws on a canvas. */
+public class FxPen implements Pen
+{
+    private final GraphicsContext gc;
+    private final Track.Detail detail;
+
+    /** Draw at the detail level the board is viewed at. */
+    public FxPen(GraphicsContext gc) {
+	this(gc, Track.detail);
+    }
+
+    public FxPen(GraphicsContext gc, Track.Detail detail) {
+	this.gc = gc;
+	this.detail = detail;
+    }
+
+    public GraphicsContext getGraphicsContext() {
+	return gc;
+    }
+
+    @Override public Track.Detail getDetail() {
+	return detail;
+    }
+
+    @Override public void save()                            { gc.save();                 }
+    @Override public void restore()                         { gc.restore();              }
+    @Override public void translate(double x, double y)     { gc.translate(x, y);        }
+    @Override public void rotate(double degrees)            { gc.rotate(degrees);        }
+    @Override public Affine getTransform()                  { return gc.getTransform();  }
+    @Override public void setTransform(Affine transform)    { gc.setTransform(transform); }
+
+    @Override public void setFill(Color color)              { gc.setFill(color);         }
+    @Override public void setStroke(Color color)            { gc.setStroke(color);       }
+    @Override public void setLineWidth(double width)        { gc.setLineWidth(width);    }
+    @Override public void setLineCap(StrokeLineCap cap)     { gc.setLineCap(cap);        }
+
+    @Override public void fillRect(double x, double y, double w, double h) {
+	gc.fillRect(x, y, w, h);
+    }
+
+    @Override public void fillRoundRect(double x, double y, double w, double h,
+					double arcWidth, double arcHeight) {
+	gc.fillRoundRect(x, y, w, h, arcWidth, arcHeight);
+    }
+
+    @Override public void fillOval(double x, double y, double w, double h) {
+	gc.fillOval(x, y, w, h);
+    }
+
+    @Override public void fillArc(double x, double y, double w, double h,
+				  double startAngle, double arcExtent, ArcType closure) {
+	gc.fillArc(x, y, w, h, startAngle, arcExtent, closure);
+    }
+
+    @Override public void strokeLine(double x1, double y1, double x2, double y2) {
+	gc.strokeLine(x1, y1, x2, y2);
+    }
+
+    @Override public void strokeArc(double x, double y, double w, double h,
+				    double startAngle, double arcExtent, ArcType closure) {
+	gc.strokeArc(x, y, w, h, startAngle, arcExtent, closure);
+    }
+
+    @Override public void clearRect(double x, double y, double w, double h) {
+	gc.clearRect(x, y, w, h);
+    }
+}
@@ -0,0 +1,46 @@
+/**
+ * Rotation math on plain doubles, so the hit test, drag and snap paths
+ * don't need a javafx Rotate and a Point2D for every transform.  Angles
+ * are in degrees and turn the same way as javafx.scene.transform.Rotate.
+ */
+public final class Geometry
+{
+    private Geometry() {}
+
+    public static double cos(double degrees) {
+	return Math.cos(Math.toRadians(degrees));
+    }
+
+    public static double sin(double degrees) {
+	return Math.sin(Math.toRadians(degrees));
+    }
+
+    public static double rotateX(double x, double y, double cos, double sin) {
+	return cos*x - sin*y;
+    }
+
+    public static double rotateY(double x, double y, double cos, double sin) {
+	return sin*x + cos*y;
+    }
+
+    /** Half the width of the axis aligned box around a rotated w x h box. */
+    public static double halfWidth(double w, double h, double cos, double sin) {
+	return (Math.abs(cos)*w + Math.abs(sin)*h) / 2;
+    }
+
+    public static double halfHeight(double w, double h, double cos, double sin) {
+	return (Math.abs(sin)*w + Math.abs(cos)*h) / 2;
+    }
+
+    /**
+     * Rotate x,y by angle around the pivot px,py, storing the result in
+     * out[0] and out[1].
+     */
+    public static void rotate(double angle, double px, double py,
+			      double x, double y, double[] out) {
+	double c = cos(angle);
+	double s = sin(angle);
+	out[0] = px + rotateX(x-px, y-py, c, s);
+	out[1] = py + rotateY(x-px, y-py, c, s);
+    }
+}
@@ -1,14 +1,13 @@
-import javafx.geometry.Point2D;
-import javafx.scene.transform.Rotate;
-
 public class GlobalConnection {
     public double x;
     public double y;
     public Track.LocalConnection connection;
+    public final Point point;
 
-    public GlobalConnection(Track.LocalConnection lc, double x, double y)
+    public GlobalConnection(Point point, Track.LocalConnection lc)
     {
-	set(lc, x, y);
+	this.point = point;
+	set(lc, point.x, point.y);
 	
     }
     private  void set(Track.LocalConnection lc, double x, double y) 
@@ -19,9 +18,12 @@ public class GlobalConnection {
     }
     public void moveTo(double x, double y, double angle) 
     {
-        Point2D p2d = new Rotate(angle).transform(connection.x, connection.y);
-        this.x = x + p2d.getX();
-        this.y = y + p2d.getY();
+	moveTo(x, y, Geometry.cos(angle), Geometry.sin(angle));
+    }
+    public void moveTo(double x, double y, double cos, double sin) 
+    {
+        this.x = x + Geometry.rotateX(connection.x, connection.y, cos, sin);
+        this.y = y + Geometry.rotateY(connection.x, connection.y, cos, sin);
     }
 	
 }
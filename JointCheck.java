@@ -0,0 +1,125 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Finds the track ends that aren't joined: open ends, with nothing
+ * there, and near misses, where another loose end is close and facing
+ * the same way but not close enough to join.  While it's on, it's kept
+ * up to date around each piece that joins or leaves the track graph.
+ */
+public class JointCheck
+{
+    public static enum State {
+	OPEN, NEAR_MISS;
+    }
+
+    //how far off a loose end can be and still be a near miss
+    private static final double NEAR_INCHES = 0.25;
+    private static final double NEAR_ANGLE = 15;
+
+    private final JointHash joints;
+    private final TrackGraph graph;
+    private final Consumer<GlobalConnection> changed;
+    private final Map<GlobalConnection, State> states = new HashMap<>();
+    private final List<GlobalConnection> nearJoints = new ArrayList<>();
+    private final List<GlobalConnection> around = new ArrayList<>();
+    private boolean enabled = false;
+
+    /** changed is told about each end whose state changes. */
+    public JointCheck(JointHash joints, TrackGraph graph, Consumer<GlobalConnection> changed) {
+	this.joints = joints;
+	this.graph = graph;
+	this.changed = changed;
+    }
+
+    public boolean isEnabled() {
+	return enabled;
+    }
+
+    /**
+     * Check every end of the given pieces now, and keep checking; or
+     * stop.  Nothing is told about the ends checked here.
+     */
+    public void setEnabled(boolean enabled, Iterable<Point> points) {
+	this.enabled = enabled;
+	states.clear();
+	if (enabled) checkAll(points);
+    }
+
+    /** Check every end of the pieces, from scratch. */
+    public void checkAll(Iterable<Point> points) {
+	states.clear();
+	for (Point p : points) {
+	    if (p.connections == null) continue;
+	    for (GlobalConnection c : p.connections) {
+		State state = classify(c);
+		if (state != null) states.put(c, state);
+	    }
+	}
+    }
+
+    public void clear() {
+	states.clear();
+    }
+
+    /** null if c is joined, or not on the board. */
+    public State stateOf(GlobalConnection c) {
+	return states.get(c);
+    }
+
+    public int count(State state) {
+	int n = 0;
+	for (State s : states.values()) {
+	    if (s == state) ++n;
+	}
+	return n;
+    }
+
+    /**
+     * Check again the ends of p and those near them, after p has
+     * joined or left the graph; the ends must still be where they were.
+     */
+    public void update(Point p) {
+	if (! enabled || p.connections == null) return;
+
+	double r = near();
+	around.clear();
+	for (GlobalConnection c : p.connections) {
+	    around.addAll(joints.near(c.x, c.y, r, nearJoints));
+	}
+	for (GlobalConnection c : p.connections) {
+	    check(c);
+	}
+	for (GlobalConnection c : around) {
+	    if (c.point != p) check(c);
+	}
+    }
+
+    private void check(GlobalConnection c) {
+	State state = classify(c);
+	State old = state == null ? states.remove(c) : states.put(c, state);
+	if (old != state) changed.accept(c);
+    }
+
+    private State classify(GlobalConnection c) {
+	if (! graph.contains(c.point) || graph.mateOf(c) != null) return null;
+
+	double r = near();
+	for (GlobalConnection o : joints.near(c.x, c.y, r, nearJoints)) {
+	    if (o.point == c.point || ! graph.contains(o.point) || graph.mateOf(o) != null) continue;
+
+	    double dx = o.x - c.x, dy = o.y - c.y;
+	    if (dx*dx + dy*dy > r*r) continue;
+	    double turn = (c.point.angle + c.connection.angle) - (o.point.angle + o.connection.angle);
+	    if (Math.abs(Math.IEEEremainder(turn - 180, 360)) < NEAR_ANGLE) return State.NEAR_MISS;
+	}
+	return State.OPEN;
+    }
+
+    private static double near() {
+	return NEAR_INCHES * Length.ppi;
+    }
+}
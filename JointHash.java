@@ -0,0 +1,123 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Spatial hash of the global connection points of placed track, keyed
+ * by quantized position, so the joints near a spot can be found
+ * without looking at every piece on the board.
+ */
+public class JointHash
+{
+    public static final double DEFAULT_CELL_SIZE = 32;
+
+    private static class Slot {
+	int cx, cy;
+    }
+
+    private final double cellSize;
+    private final CellMap<List<GlobalConnection>> cells = new CellMap<>();
+    private final Map<GlobalConnection, Slot> slots = new HashMap<>();
+    private double maxRadius = 0;
+
+    public JointHash() {
+	this(DEFAULT_CELL_SIZE);
+    }
+
+    public JointHash(double cellSize) {
+	this.cellSize = cellSize;
+    }
+
+    /** Largest connection size of any point added since the last clear. */
+    public double maxRadius() {
+	return maxRadius;
+    }
+
+    public void clear() {
+	cells.clear();
+	slots.clear();
+	maxRadius = 0;
+    }
+
+    public void add(Point p) {
+	if (p.connections == null) return;
+
+	maxRadius = Math.max(maxRadius, p.shape.connectionSize());
+	p.placeConnections();
+	for (GlobalConnection c : p.connections) {
+	    Slot s = new Slot();
+	    s.cx = cell(c.x);
+	    s.cy = cell(c.y);
+	    slots.put(c, s);
+	    cellAt(s).add(c);
+	}
+    }
+
+    public void remove(Point p) {
+	if (p.connections == null) return;
+
+	for (GlobalConnection c : p.connections) {
+	    Slot s = slots.remove(c);
+	    if (s != null) cellAt(s).remove(c);
+	}
+    }
+
+    /** Call after the point has been moved or rotated. */
+    public void update(Point p) {
+	if (p.connections == null) return;
+
+	p.placeConnections();
+	for (GlobalConnection c : p.connections) {
+	    Slot s = slots.get(c);
+	    if (s == null) return;
+
+	    int cx = cell(c.x);
+	    int cy = cell(c.y);
+	    if (cx != s.cx || cy != s.cy) {
+		cellAt(s).remove(c);
+		s.cx = cx;
+		s.cy = cy;
+		cellAt(s).add(c);
+	    }
+	}
+    }
+
+    public List<GlobalConnection> near(double x, double y, double r) {
+	return near(x, y, r, new ArrayList<>());
+    }
+
+    /**
+     * Replace the contents of out with the connections in the cells
+     * that cover a circle of radius r around x,y.  Callers still need
+     * to check the exact distance.
+     */
+    public List<GlobalConnection> near(double x, double y, double r,
+				       List<GlobalConnection> out) {
+	out.clear();
+	int cx1 = cell(x+r), cy1 = cell(y+r);
+	for (int cx = cell(x-r); cx <= cx1; ++cx) {
+	    for (int cy = cell(y-r); cy <= cy1; ++cy) {
+		List<GlobalConnection> list = cells.get(cx, cy);
+		if (list == null) continue;
+		for (int i=0; i<list.size(); ++i) {
+		    out.add(list.get(i));
+		}
+	    }
+	}
+	return out;
+    }
+
+    private int cell(double v) {
+	return (int)Math.floor(v / cellSize);
+    }
+
+    private List<GlobalConnection> cellAt(Slot s) {
+	List<GlobalConnection> list = cells.get(s.cx, s.cy);
+	if (list == null) {
+	    list = new ArrayList<>();
+	    cells.put(s.cx, s.cy, list);
+	}
+	return list;
+    }
+}
@@ -0,0 +1,221 @@
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Makes up large layouts for stress testing out of the pieces in the
+ * ShapeBox: ovals, figure eights through a crossing, yards fanned out
+ * from a ladder of turnouts, crossings, and scattered scenery, each in a
+ * square of its own on a grid.  Track is laid by fitting each piece's
+ * connection to the open end of the last, the way it snaps together in
+ * the editor, so every joint mates.  The same seed always makes the same
+ * layout.  Only places are kept, not Points, so it goes to millions of
+ * pieces.
+ *
+ *   java LayoutGenerator [--seed N] [--pieces N] file...
+ *
+ * Each file is written as a binary layout if its name says so, and as
+ * XML otherwise.
+ */
+public class LayoutGenerator
+{
+    //board pixels on a side of each module's square
+    private static final double CELL = 1600;
+
+    //an open end of track: where it is, and the way it faces
+    private static final class End {
+	final double x, y, angle;
+
+	End(double x, double y, double angle) {
+	    this.x = x;
+	    this.y = y;
+	    this.angle = angle;
+	}
+    }
+
+    private final Random random;
+    private final Map<String, Shape> shapes = new HashMap<>();
+
+    private double[] xs = new double[1024];
+    private double[] ys = new double[1024];
+    private double[] angles = new double[1024];
+    private String[] ids = new String[1024];
+    private int size = 0;
+
+    public LayoutGenerator(long seed) {
+	random = new Random(seed);
+	for (Shape s : new ShapeBox().getShapes()) {
+	    shapes.put(s.getId(), s);
+	}
+    }
+
+    /** A layout of at least the given number of pieces. */
+    public LayoutSnapshot generate(int pieces) {
+	size = 0;
+	//fill the grid row by row, making it about square in the end
+	int estimate = Math.max(1, pieces / 20);
+	int columns = (int)Math.ceil(Math.sqrt(estimate));
+	int cell = 0;
+	while (size < pieces) {
+	    double x = (cell % columns + 0.5) * CELL;
+	    double y = (cell / columns + 0.5) * CELL;
+	    module(x, y);
+	    ++cell;
+	}
+	int rows = (cell + columns - 1) / columns;
+	return LayoutSnapshot.of(Length.ppi, columns * CELL / Length.ppi, rows * CELL / Length.ppi,
+				 size, xs, ys, angles, ids);
+    }
+
+    private void module(double x, double y) {
+	int pick = random.nextInt(20);
+	if (pick < 6) oval(x, y);
+	else if (pick < 9) figureEight(x, y);
+	else if (pick < 14) yard(x, y);
+	else if (pick < 16) crossing(x, y);
+	else scenery(x, y);
+    }
+
+    //a loop of two half circles of curves with straights between
+    private void oval(double x, double y) {
+	String[] curves = { "curve", "curve-975", "curve-11" };
+	String curve = curves[random.nextInt(curves.length)];
+	int straights = 1 + random.nextInt(4);
+
+	//along the top heading right, then round clockwise
+	End end = end(place("straight5", x - straights * 60, y - 300, 90), 1);
+	end = straights(end, straights - 1);
+	end = turn(end, curve, 6);
+	end = straights(end, straights);
+	turn(end, curve, 6);
+    }
+
+    /*
+     * Two loops through a square crossing.  Each leaves one leg and comes
+     * back to the next one round, turning 270 degrees; with 11" curves,
+     * 10" of straight either side puts the curves' center on the
+     * crossing's diagonal, so the loop comes back exactly.
+     */
+    private void figureEight(double x, double y) {
+	int cross = place("x90", x, y, 0);
+	for (int leg : new int[] { 0, 2 }) {
+	    End end = straights(end(cross, leg), 2);
+	    end = turn(end, "curve-11", 9);
+	    straights(end, 2);
+	}
+    }
+
+    /*
+     * A lead at 15 degrees to the yard, with a turnout for each track
+     * whose curved leg turns it parallel to the others.
+     */
+    private void yard(double x, double y) {
+	int tracks = 3 + random.nextInt(5);
+	int length = 2 + random.nextInt(3);
+
+	End lead = end(place("straight5", x - 750, y + 250, 75), 1);
+	for (int i=0; i<tracks; ++i) {
+	    int turnout = place("right", lead, 0);
+	    straights(end(turnout, 2), length);
+	    lead = end(turnout, 1);
+	}
+	straights(lead, 1);
+    }
+
+    //two lines of straights across each other
+    private void crossing(double x, double y) {
+	String[] crosses = { "x90", "x45", "x15" };
+	int cross = place(crosses[random.nextInt(crosses.length)], x, y, random.nextInt(24) * 15);
+	for (int leg=0; leg<4; ++leg) {
+	    straights(end(cross, leg), 1 + random.nextInt(3));
+	}
+    }
+
+    private void scenery(double x, double y) {
+	String[] kinds = { "solid", "middot", "tall" };
+	int n = 15 + random.nextInt(26);
+	for (int i=0; i<n; ++i) {
+	    place(kinds[random.nextInt(kinds.length)],
+		  x + (random.nextDouble() - 0.5) * CELL * 0.8,
+		  y + (random.nextDouble() - 0.5) * CELL * 0.8,
+		  random.nextInt(24) * 15);
+	}
+    }
+
+    private End straights(End end, int n) {
+	for (int i=0; i<n; ++i) end = end(place("straight5", end, 0), 1);
+	return end;
+    }
+
+    //curves going in by their second end turn right, by their first left
+    private End turn(End end, String curve, int n) {
+	for (int i=0; i<n; ++i) end = end(place(curve, end, 1), 0);
+	return end;
+    }
+
+    private int place(String id, double x, double y, double angle) {
+	if (size == xs.length) {
+	    int n = size * 2;
+	    xs = Arrays.copyOf(xs, n);
+	    ys = Arrays.copyOf(ys, n);
+	    angles = Arrays.copyOf(angles, n);
+	    ids = Arrays.copyOf(ids, n);
+	}
+	xs[size] = x;
+	ys[size] = y;
+	angles[size] = angle;
+	ids[size] = id;
+	return size++;
+    }
+
+    //place a piece with its connection k on an open end, facing it
+    private int place(String id, End end, int k) {
+	Track.LocalConnection lc = shapes.get(id).getConnections()[k];
+	double angle = end.angle + 180 - lc.angle;
+	double cos = Geometry.cos(angle), sin = Geometry.sin(angle);
+	return place(id,
+		     end.x - Geometry.rotateX(lc.x, lc.y, cos, sin),
+		     end.y - Geometry.rotateY(lc.x, lc.y, cos, sin),
+		     angle);
+    }
+
+    //where a placed piece's connection k is
+    private End end(int piece, int k) {
+	Track.LocalConnection lc = shapes.get(ids[piece]).getConnections()[k];
+	double cos = Geometry.cos(angles[piece]), sin = Geometry.sin(angles[piece]);
+	return new End(xs[piece] + Geometry.rotateX(lc.x, lc.y, cos, sin),
+		       ys[piece] + Geometry.rotateY(lc.x, lc.y, cos, sin),
+		       angles[piece] + lc.angle);
+    }
+
+    public static void main(String[] args) throws IOException {
+	long seed = 1;
+	int pieces = 100_000;
+	int i = 0;
+	for (; i < args.length && args[i].startsWith("--"); i += 2) {
+	    if (i + 1 >= args.length) usage();
+	    switch (args[i]) {
+	    case "--seed":   seed = Long.parseLong(args[i+1]);     break;
+	    case "--pieces": pieces = Integer.parseInt(args[i+1]); break;
+	    default:         usage();
+	    }
+	}
+	if (i == args.length) usage();
+
+	LayoutSnapshot layout = new LayoutGenerator(seed).generate(pieces);
+	for (; i < args.length; ++i) {
+	    File file = new File(args[i]);
+	    layout.save(file);
+	    System.out.printf("%s: %d pieces, %.0f x %.0f in%n",
+			      file, layout.size(), layout.width, layout.height);
+	}
+    }
+
+    private static void usage() {
+	System.err.println("usage: LayoutGenerator [--seed N] [--pieces N] file...");
+	System.exit(2);
+    }
+}
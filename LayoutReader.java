@@ -0,0 +1,31 @@
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Reads the size and places of a saved layout, a batch of places at a
+ * time.
+ */
+public interface LayoutReader extends Closeable
+{
+    double getDpi();
+    double getWidth();
+    double getHeight();
+
+    /** Fraction of the layout read so far. */
+    double progress();
+
+    /**
+     * Add up to max more places to out.  Returns how many were added,
+     * which is 0 once the whole layout has been read.
+     */
+    int read(List<BoardController.SavedPlace> out, int max) throws IOException;
+
+    /** Open a binary or XML layout, whichever the file holds. */
+    static LayoutReader open(File file) throws IOException {
+	return BinaryLayout.isBinary(file)
+	    ? new BinaryLayout.Reader(file)
+	    : new XmlLayoutReader(file);
+    }
+}
@@ -0,0 +1,63 @@
+import javafx.scene.canvas.Canvas;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Draws a saved layout to an image without opening the editor, at any
+ * resolution, the same way the board draws it.  Must not be used on the
+ * application thread, which does the drawing.
+ */
+public class LayoutRenderer
+{
+    private static final int READ_BATCH = 4096;
+
+    private final Map<String,Shape> shapesMap = new HashMap<>();
+
+    public LayoutRenderer() {
+	for (Shape s : new ShapeBox().getShapes()) {
+	    shapesMap.put(s.getId(), s);
+	}
+    }
+
+    /**
+     * Render the layout to a PNG file at ppi pixels per inch, or to an
+     * SVG file, which has no resolution, if its name ends with .svg.
+     */
+    public void render(File layout, File image, double ppi) throws IOException {
+	BoardModel model = new BoardModel(new Canvas().getGraphicsContext2D(),
+					  new Canvas().getGraphicsContext2D());
+	double width, height;
+	try (LayoutReader reader = LayoutReader.open(layout)) {
+	    List<BoardController.SavedPlace> places = new ArrayList<>();
+	    while (reader.read(places, READ_BATCH) > 0) {
+		for (Point p : BoardController.toPoints(places, shapesMap)) {
+		    model.addPoint(p);
+		}
+		places.clear();
+	    }
+	    width = reader.getWidth();
+	    height = reader.getHeight();
+	}
+
+	//old layouts have no size, so fit the pieces
+	if (width <= 0 || height <= 0) {
+	    for (Point p : model.shapes) {
+		width = Math.max(width, (p.x + p.getWidth()/2) / Length.ppi);
+		height = Math.max(height, (p.y + p.getHeight()/2) / Length.ppi);
+	    }
+	}
+
+	if (image.getName().toLowerCase().endsWith(".svg")) {
+	    SvgPen.export(model, width * Length.ppi, height * Length.ppi,
+			  BoardController.BOARD_COLOR, image);
+	} else {
+	    new StripExporter(model, width * Length.ppi, height * Length.ppi, ppi / Length.ppi)
+		.export(image);
+	}
+    }
+}
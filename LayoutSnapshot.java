@@ -0,0 +1,111 @@
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.xml.bind.JAXB;
+
+/**
+ * A copy of the board's places that can be saved on another thread
+ * while the board keeps changing.  Taking one only copies a few numbers
+ * per place.
+ */
+public final class LayoutSnapshot
+{
+    public final double dpi;
+    public final double width;
+    public final double height;
+
+    private final double[] xs;
+    private final double[] ys;
+    private final double[] angles;
+    private final String[] shapes;
+
+    private LayoutSnapshot(double dpi, double width, double height, int size) {
+	this.dpi = dpi;
+	this.width = width;
+	this.height = height;
+	xs = new double[size];
+	ys = new double[size];
+	angles = new double[size];
+	shapes = new String[size];
+    }
+
+    private LayoutSnapshot(double dpi, double width, double height,
+			   double[] xs, double[] ys, double[] angles, String[] shapes) {
+	this.dpi = dpi;
+	this.width = width;
+	this.height = height;
+	this.xs = xs;
+	this.ys = ys;
+	this.angles = angles;
+	this.shapes = shapes;
+    }
+
+    /**
+     * A layout made up without a board, from the first size places in
+     * the arrays, which are copied.
+     */
+    public static LayoutSnapshot of(double dpi, double width, double height, int size,
+				    double[] xs, double[] ys, double[] angles, String[] shapes) {
+	return new LayoutSnapshot(dpi, width, height,
+				  Arrays.copyOf(xs, size), Arrays.copyOf(ys, size),
+				  Arrays.copyOf(angles, size), Arrays.copyOf(shapes, size));
+    }
+
+    /** Width and height are in inches. */
+    public static LayoutSnapshot of(double dpi, double width, double height, List<Point> points) {
+	LayoutSnapshot s = new LayoutSnapshot(dpi, width, height, points.size());
+	for (int i=0; i<points.size(); ++i) {
+	    Point p = points.get(i);
+	    s.xs[i] = p.x;
+	    s.ys[i] = p.y;
+	    s.angles[i] = p.angle;
+	    s.shapes[i] = p.shape.getId();
+	}
+	return s;
+    }
+
+    public int size()              { return xs.length; }
+    public double getX(int i)      { return xs[i];     }
+    public double getY(int i)      { return ys[i];     }
+    public double getAngle(int i)  { return angles[i]; }
+    public String getShape(int i)  { return shapes[i]; }
+
+    /**
+     * Save to file, as a binary layout if the name says so and as XML
+     * otherwise.  The layout is written to a temporary file next to
+     * the target and renamed over it, so the target is never left half
+     * written.
+     */
+    public void save(File file) throws IOException {
+	File dir = file.getAbsoluteFile().getParentFile();
+	File tmp = File.createTempFile(file.getName(), ".tmp", dir);
+	try {
+	    try (FileOutputStream out = new FileOutputStream(tmp)) {
+		if (file.getName().endsWith(BinaryLayout.EXTENSION)) {
+		    BinaryLayout.write(out.getChannel(), this);
+		} else {
+		    BoardController.SavedBoard savedBoard = new BoardController.SavedBoard();
+		    savedBoard.width = width;
+		    savedBoard.height = height;
+		    savedBoard.setAll(this);
+		    JAXB.marshal(savedBoard, out);
+		}
+		out.getChannel().force(true);
+	    }
+	    try {
+		Files.move(tmp.toPath(), file.toPath(),
+			   StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+	    } catch (AtomicMoveNotSupportedException e) {
+		Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+	    }
+	} finally {
+	    Files.deleteIfExists(tmp.toPath());
+	}
+    }
+}
@@ -1,5 +1,6 @@
  
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.scene.Group;
 import javafx.scene.Parent;
 import javafx.scene.Scene;
@@ -15,15 +16,34 @@ public class Mover extends Application
 {
     public static void main(String[] args) {
         launch(args);
+        if (renderFailed) System.exit(1);
     }
 
     private static final boolean USE_FXML = true;
+    private static final double DEFAULT_RENDER_PPI = 96;
+    //set on the renderer thread, read after launch returns
+    private static volatile boolean renderFailed = false;
     
     @Override
     public void start(Stage primaryStage) throws IOException {
         final Parent root;
 
         java.util.List<String> args = getParameters().getUnnamed();
+        if (args.contains("--render")) {
+            //drawing happens on this thread, so render from another
+            Thread renderer = new Thread(() -> {
+                    try {
+                        render(args);
+                    } catch (RuntimeException e) {
+                        e.printStackTrace();
+                        renderFailed = true;
+                    } finally {
+                        Platform.exit();
+                    }
+                }, "renderer");
+            renderer.start();
+            return;
+        }
         File load = null;
         if (! args.isEmpty()) {
             load = new File(args.get(0));
@@ -52,6 +72,51 @@ public class Mover extends Application
         primaryStage.show();
         primaryStage.getScene().setCursor(Cursor.HAND);
     }
+
+    /**
+     * Render layouts to PNG or SVG files without showing the editor:
+     *   --render in.xml out.png [--render in2.xml out2.png ...] [--ppi N]
+     * The options are all read before anything is rendered, so --ppi
+     * applies to every render wherever it's given.  Run with
+     * -Djava.awt.headless=true, and a headless glass platform such as
+     * Monocle where there's no display.
+     */
+    private static void render(java.util.List<String> args) {
+        double ppi = DEFAULT_RENDER_PPI;
+        java.util.List<File> files = new java.util.ArrayList<>();
+        try {
+            for (int i=0; i<args.size(); ++i) {
+                String arg = args.get(i);
+                if (arg.equals("--ppi")) {
+                    ppi = Double.parseDouble(args.get(++i));
+                } else if (arg.equals("--render")) {
+                    files.add(new File(args.get(++i)));
+                    files.add(new File(args.get(++i)));
+                } else {
+                    System.err.println("unknown option " + arg);
+                    renderFailed = true;
+                    return;
+                }
+            }
+        } catch (IndexOutOfBoundsException | NumberFormatException e) {
+            System.err.println("usage: --render in.xml out.png ... [--ppi N]");
+            renderFailed = true;
+            return;
+        }
+
+        LayoutRenderer renderer = new LayoutRenderer();
+        for (int i=0; i<files.size(); i += 2) {
+            File in = files.get(i);
+            File out = files.get(i+1);
+            try {
+                renderer.render(in, out, ppi);
+                System.out.println(in + " -> " + out);
+            } catch (IOException e) {
+                System.err.println("can't render " + in + ": " + e.getMessage());
+                renderFailed = true;
+            }
+        }
+    }
     
 }
 
@@ -0,0 +1,37 @@
+import javafx.scene.paint.Color;
+import javafx.scene.shape.ArcType;
+import javafx.scene.shape.StrokeLineCap;
+import javafx.scene.transform.Affine;
+
+/**
+ * What shapes draw with: the parts of GraphicsContext they use, so the
+ * same drawing can go to a canvas or to a vector file.  Coordinates,
+ * angles and transforms mean what they do for GraphicsContext.
+ */
+public interface Pen
+{
+    /** How much of each piece to draw. */
+    Track.Detail getDetail();
+
+    void save();
+    void restore();
+    void translate(double x, double y);
+    void rotate(double degrees);
+    Affine getTransform();
+    void setTransform(Affine transform);
+
+    void setFill(Color color);
+    void setStroke(Color color);
+    void setLineWidth(double width);
+    void setLineCap(StrokeLineCap cap);
+
+    void fillRect(double x, double y, double w, double h);
+    void fillRoundRect(double x, double y, double w, double h, double arcWidth, double arcHeight);
+    void fillOval(double x, double y, double w, double h);
+    void fillArc(double x, double y, double w, double h,
+		 double startAngle, double arcExtent, ArcType closure);
+    void strokeLine(double x1, double y1, double x2, double y2);
+    void strokeArc(double x, double y, double w, double h,
+		   double startAngle, double arcExtent, ArcType closure);
+    void clearRect(double x, double y, double w, double h);
+}
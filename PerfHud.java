@@ -0,0 +1,114 @@
+import javafx.animation.AnimationTimer;
+import javafx.event.Event;
+import javafx.event.EventHandler;
+import javafx.event.EventType;
+import javafx.scene.control.Label;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A readout over the board of how long frames and mouse handlers take,
+ * and how much work the last drag, snap and repaint did.  While it's
+ * hidden it isn't the board's Stats and its timer is stopped, so all
+ * that's left is a check of a flag around each mouse handler.
+ */
+public class PerfHud implements BoardModel.Stats
+{
+    //nanoseconds between updates of the text
+    private static final long REFRESH = 250_000_000L;
+
+    private final BoardModel model;
+    private final Label label = new Label();
+    private boolean showing = false;
+
+    private long lastFrame = 0;
+    private long frameTime = 0;
+    private long lastRefresh = 0;
+    private final Map<EventType<?>, Long> latency = new LinkedHashMap<>();
+
+    private int moveExamined, moveDrawn;
+    private int snapExamined;
+    private int paintExamined, paintDrawn;
+
+    private final AnimationTimer frames = new AnimationTimer() {
+	    @Override public void handle(long now) {
+		if (lastFrame != 0) frameTime = now - lastFrame;
+		lastFrame = now;
+		if (now - lastRefresh >= REFRESH) {
+		    lastRefresh = now;
+		    label.setText(text());
+		}
+	    }
+	};
+
+    public PerfHud(BoardModel model) {
+	this.model = model;
+	label.getStyleClass().add("perf-hud");
+	label.setMouseTransparent(true);
+	label.setVisible(false);
+    }
+
+    /** The readout, to put over the board. */
+    public Label getLabel() {
+	return label;
+    }
+
+    public boolean isShowing() {
+	return showing;
+    }
+
+    public void show(boolean val) {
+	if (val == showing) return;
+	showing = val;
+	label.setVisible(val);
+	if (val) {
+	    model.setStats(this);
+	    lastFrame = 0;
+	    frames.start();
+	} else {
+	    model.setStats(null);
+	    frames.stop();
+	}
+    }
+
+    /** Time handler, while the readout is showing. */
+    public <T extends Event> EventHandler<T> timed(EventHandler<T> handler) {
+	return e -> {
+	    if (! showing) {
+		handler.handle(e);
+		return;
+	    }
+	    long start = System.nanoTime();
+	    handler.handle(e);
+	    latency.put(e.getEventType(), System.nanoTime() - start);
+	};
+    }
+
+    @Override public void moved(int examined, int drawn) {
+	moveExamined = examined;
+	moveDrawn = drawn;
+    }
+
+    @Override public void snapped(int examined) {
+	snapExamined = examined;
+    }
+
+    @Override public void repainted(int examined, int drawn) {
+	paintExamined = examined;
+	paintDrawn = drawn;
+    }
+
+    private String text() {
+	StringBuilder sb = new StringBuilder();
+	sb.append(String.format("frame %.1f ms", frameTime / 1e6));
+	for (Map.Entry<EventType<?>, Long> e : latency.entrySet()) {
+	    sb.append(String.format("%n%s %.2f ms", e.getKey(), e.getValue() / 1e6));
+	}
+	sb.append(String.format("%nmove %d examined, %d drawn", moveExamined, moveDrawn));
+	sb.append(String.format("%nsnap %d examined", snapExamined));
+	sb.append(String.format("%nrepaint %d examined, %d drawn", paintExamined, paintDrawn));
+	sb.append(String.format("%n%d repaints", model.getRepaints()));
+	return sb.toString();
+    }
+}
@@ -0,0 +1,144 @@
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.Adler32;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Streams an RGB PNG image out a band of rows at a time, so the whole
+ * image is never in memory.  Bands are filtered and compressed on their
+ * own, possibly on several threads, and written in order; the writer
+ * joins them into the single zlib stream PNG expects.
+ */
+public class PngWriter
+{
+    private static final byte[] SIGNATURE = { (byte)137, 'P', 'N', 'G', '\r', '\n', 26, '\n' };
+    //zlib header: deflate, 32K window, default compression
+    private static final byte[] ZLIB_HEADER = { 0x78, (byte)0x9c };
+    private static final int FILTER_UP = 2;
+    private static final int ADLER_BASE = 65521;
+
+    /** A compressed band of rows, ready to write. */
+    public static final class Band {
+	final int rows;
+	final byte[] data;
+	final long adler;
+	final long length;
+
+	private Band(int rows, byte[] data, long adler, long length) {
+	    this.rows = rows;
+	    this.data = data;
+	    this.adler = adler;
+	    this.length = length;
+	}
+    }
+
+    private final DataOutputStream out;
+    private final int height;
+    private int rows = 0;
+    private long adler = 1;
+
+    public PngWriter(OutputStream out, int width, int height) throws IOException {
+	this.out = new DataOutputStream(out);
+	this.height = height;
+
+	this.out.write(SIGNATURE);
+	ByteArrayOutputStream bytes = new ByteArrayOutputStream(13);
+	DataOutputStream header = new DataOutputStream(bytes);
+	header.writeInt(width);
+	header.writeInt(height);
+	header.writeByte(8); //bits per sample
+	header.writeByte(2); //RGB
+	header.writeByte(0); //deflate
+	header.writeByte(0); //adaptive filtering
+	header.writeByte(0); //not interlaced
+	chunk("IHDR", bytes.toByteArray(), bytes.size());
+	chunk("IDAT", ZLIB_HEADER, ZLIB_HEADER.length);
+    }
+
+    /**
+     * Filter and compress rows of ARGB pixels.  above is the last row
+     * of the band before, or null for the first band; last says this
+     * band ends the image.  Safe to call on any thread.
+     */
+    public static Band encode(int[] argb, int width, int rows, int[] above, boolean last) {
+	int stride = 1 + 3*width;
+	byte[] raw = new byte[rows * stride];
+	for (int r=0, i=0; r<rows; ++r) {
+	    raw[i++] = FILTER_UP;
+	    for (int x=0; x<width; ++x) {
+		int p = argb[r*width + x];
+		int q = r > 0 ? argb[(r-1)*width + x] : above != null ? above[x] : 0;
+		raw[i++] = (byte)((p >> 16) - (q >> 16));
+		raw[i++] = (byte)((p >> 8) - (q >> 8));
+		raw[i++] = (byte)(p - q);
+	    }
+	}
+
+	Adler32 sum = new Adler32();
+	sum.update(raw, 0, raw.length);
+
+	Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+	ByteArrayOutputStream data = new ByteArrayOutputStream(raw.length / 4);
+	byte[] buf = new byte[64 << 10];
+	try {
+	    deflater.setInput(raw);
+	    if (last) {
+		deflater.finish();
+		while (! deflater.finished()) {
+		    data.write(buf, 0, deflater.deflate(buf));
+		}
+	    } else {
+		//end on a byte boundary so the next band can follow on
+		int n;
+		do {
+		    n = deflater.deflate(buf, 0, buf.length, Deflater.SYNC_FLUSH);
+		    data.write(buf, 0, n);
+		} while (n == buf.length);
+	    }
+	} finally {
+	    deflater.end();
+	}
+	return new Band(rows, data.toByteArray(), sum.getValue(), raw.length);
+    }
+
+    /** Write the next band; the image is finished with its last row. */
+    public void write(Band band) throws IOException {
+	if (rows + band.rows > height) throw new IllegalStateException("too many rows");
+	chunk("IDAT", band.data, band.data.length);
+	adler = combine(adler, band.adler, band.length);
+	rows += band.rows;
+	if (rows == height) {
+	    byte[] check = {
+		(byte)(adler >> 24), (byte)(adler >> 16), (byte)(adler >> 8), (byte)adler
+	    };
+	    chunk("IDAT", check, check.length);
+	    chunk("IEND", new byte[0], 0);
+	    out.flush();
+	}
+    }
+
+    //the checksum of two runs of bytes, from the checksums of each
+    static long combine(long adler1, long adler2, long length2) {
+	long rem = length2 % ADLER_BASE;
+	long sum1 = adler1 & 0xffff;
+	long sum2 = (rem * sum1) % ADLER_BASE;
+	sum1 += (adler2 & 0xffff) + ADLER_BASE - 1;
+	sum2 += (adler1 >> 16) + (adler2 >> 16) + ADLER_BASE - rem;
+	return (sum1 % ADLER_BASE) | ((sum2 % ADLER_BASE) << 16);
+    }
+
+    private void chunk(String type, byte[] data, int length) throws IOException {
+	byte[] name = type.getBytes(StandardCharsets.US_ASCII);
+	CRC32 crc = new CRC32();
+	crc.update(name);
+	crc.update(data, 0, length);
+	out.writeInt(length);
+	out.write(name);
+	out.write(data, 0, length);
+	out.writeInt((int)crc.getValue());
+    }
+}
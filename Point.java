@@ -1,6 +1,3 @@
-import javafx.geometry.Point2D;
-import javafx.scene.transform.Rotate;
-import javafx.scene.canvas.GraphicsContext;
 import javafx.scene.paint.Color;
 
 public class Point 
@@ -12,9 +9,18 @@ public class Point
     public final Shape shape;
     public boolean obscured = false;
     public boolean floating = false;
+    //where it is in its board's shapes, as the board last numbered them
+    int index = -1;
     
     public final GlobalConnection[] connections;
 
+    //rotation and rotated extents, recomputed only when angle changes
+    private double cachedAngle = Double.NaN;
+    private double cos;
+    private double sin;
+    private double halfWidth;
+    private double halfHeight;
+
     public Point(double x, double y, Shape s) {
         this.x = x;
         this.y = y;
@@ -24,7 +30,7 @@ public class Point
             Track.LocalConnection [] lc = s.getConnections();
             connections = new GlobalConnection[lc.length];
             for (int i=0; i<lc.length; ++i) {
-                connections[i] = new GlobalConnection(lc[i], x, y);
+                connections[i] = new GlobalConnection(this, lc[i]);
             }
         } else {
             connections = null;
@@ -43,66 +49,104 @@ public class Point
 	this.x += x;
 	this.y += y;
     }
+
+    /** Which of this point's connections c is, or -1. */
+    public int indexOf(GlobalConnection c) {
+	if (connections == null) return -1;
+	for (int i=0; i<connections.length; ++i) {
+	    if (connections[i] == c) return i;
+	}
+	return -1;
+    }
+
+    public void placeConnections() {
+	if (connections == null) return;
+	rotation();
+	for (GlobalConnection c : connections) {
+	    c.moveTo(x, y, cos, sin);
+	}
+    }
+
+    /** Rotate the position of this point by angle around px,py. */
+    public void rotateAbout(double angle, double px, double py) {
+	double c = Geometry.cos(angle);
+	double s = Geometry.sin(angle);
+	double dx = x - px;
+	double dy = y - py;
+	x = px + Geometry.rotateX(dx, dy, c, s);
+	y = py + Geometry.rotateY(dx, dy, c, s);
+    }
+
+    private void rotation() {
+	if (angle == cachedAngle) return;
+
+	cachedAngle = angle;
+	cos = Geometry.cos(angle);
+	sin = Geometry.sin(angle);
+	halfWidth = Geometry.halfWidth(shape.getWidth(), shape.getHeight(), cos, sin);
+	halfHeight = Geometry.halfHeight(shape.getWidth(), shape.getHeight(), cos, sin);
+    }
     
     public double getWidth() {
-        Point2D right = new Rotate(angle)
-            .transform(shape.getWidth()/2, shape.getHeight()/2);
-        Point2D left = new Rotate(angle)
-            .transform(-shape.getWidth()/2, shape.getHeight()/2);
-        double w = Math.max(Math.abs(left.getX()),Math.abs(right.getX())) * 2;
-        //System.out.println("W=" + w);
-        return w;
-            
+	rotation();
+	return halfWidth * 2;
     }
     public double getHeight() {
-        Point2D top = new Rotate(angle)
-            .transform(shape.getWidth()/2, shape.getHeight()/2);
-        Point2D bottom = new Rotate(angle)
-            .transform(shape.getWidth()/2, -shape.getHeight()/2);
-        double h = Math.max(Math.abs(top.getY()),Math.abs(bottom.getY())) * 2;
-        return h;
+	rotation();
+	return halfHeight * 2;
     }
         
     public boolean covers(double x, double y) {
-        double w2 = getWidth()/2;
-        double h2 = getHeight()/2;
-        return x < this.x+w2 
-            && x > this.x-w2 
-            && y < this.y+h2 
-            && y > this.y-h2;
+	rotation();
+        return x < this.x+halfWidth 
+            && x > this.x-halfWidth 
+            && y < this.y+halfHeight 
+            && y > this.y-halfHeight;
+    }
+    /** True if the bounds of this point touch the given rectangle. */
+    public boolean intersects(double x0, double y0, double x1, double y1) {
+	rotation();
+	return x+halfWidth > x0
+	    && x-halfWidth < x1
+	    && y+halfHeight > y0
+	    && y-halfHeight < y1;
     }
     public boolean overlaps(Point other) {
-        double width = (getWidth() + other.getWidth())/2;
-        double height = (getHeight() + other.getHeight())/2;
+	rotation();
+	other.rotation();
+        double width = halfWidth + other.halfWidth;
+        double height = halfHeight + other.halfHeight;
         return Math.abs(x - other.x) < width 
             && Math.abs(y - other.y) < height;
     }
 
     public boolean obscures(Point other) {
-        double width = (getWidth() + other.getWidth() + 2)/2;
-        double height = (getHeight() + other.getHeight() + 2)/2;
+	rotation();
+	other.rotation();
+        double width = halfWidth + other.halfWidth + 1;
+        double height = halfHeight + other.halfHeight + 1;
         return Math.abs(x - other.x) < width 
             && Math.abs(y - other.y) < height;
     }
 
-    public void draw(GraphicsContext gc, Color color) 
+    public void draw(Pen pen, Color color) 
 	{
-	    //Affine transform = gc.getTransform();
-	    gc.save();
-	    gc.translate(x, y);
-            gc.rotate(angle);
+	    //Affine transform = pen.getTransform();
+	    pen.save();
+	    pen.translate(x, y);
+            pen.rotate(angle);
             //todo - make bounding box
-	    shape.draw(gc, floating ? Color.TRANSPARENT : color);
-	    //gc.setTransform(transform);
-	    gc.restore();
+	    shape.draw(pen, floating ? Color.TRANSPARENT : color);
+	    //pen.setTransform(transform);
+	    pen.restore();
 	}
-    public void erase(GraphicsContext gc) 
+    public void erase(Pen pen) 
 	{
-	    gc.save();
-	    gc.translate(x, y);
-            gc.rotate(angle);
-	    shape.erase(gc);
-	    gc.restore();
+	    pen.save();
+	    pen.translate(x, y);
+            pen.rotate(angle);
+	    shape.erase(pen);
+	    pen.restore();
 	}
  
 }
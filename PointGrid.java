@@ -0,0 +1,154 @@
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Uniform grid over point bounding boxes.  Each point is listed in
+ * every cell its box touches, so a lookup only has to look at the
+ * points near the place being looked up.
+ */
+public class PointGrid
+{
+    public static final double DEFAULT_CELL_SIZE = 128;
+
+    private static class Entry {
+	final Point point;
+	final long seq;
+	int x0, y0, x1, y1;
+	int mark;
+
+	Entry(Point point, long seq) {
+	    this.point = point;
+	    this.seq = seq;
+	}
+    }
+
+    private final double cellSize;
+    private final CellMap<List<Entry>> cells = new CellMap<>();
+    private final Map<Point, Entry> entries = new HashMap<>();
+    private final List<Entry> found = new ArrayList<>();
+    private long nextSeq = 0;
+    private int mark = 0;
+
+    private static final Comparator<Entry> BY_SEQ
+	= (a, b) -> Long.compare(a.seq, b.seq);
+
+    public PointGrid() {
+	this(DEFAULT_CELL_SIZE);
+    }
+
+    public PointGrid(double cellSize) {
+	this.cellSize = cellSize;
+    }
+
+    public int size() {
+	return entries.size();
+    }
+
+    public void clear() {
+	cells.clear();
+	entries.clear();
+    }
+
+    public void add(Point p) {
+	if (entries.containsKey(p)) return;
+
+	Entry e = new Entry(p, nextSeq++);
+	entries.put(p, e);
+	place(e);
+    }
+
+    public void remove(Point p) {
+	Entry e = entries.remove(p);
+	if (e != null) unplace(e);
+    }
+
+    /** Call after the point has been moved or rotated. */
+    public void update(Point p) {
+	Entry e = entries.get(p);
+	if (e == null) return;
+
+	double w2 = p.getWidth()/2;
+	double h2 = p.getHeight()/2;
+	if (cell(p.x-w2) == e.x0 && cell(p.x+w2) == e.x1
+	    && cell(p.y-h2) == e.y0 && cell(p.y+h2) == e.y1) {
+	    return;
+	}
+	unplace(e);
+	place(e);
+    }
+
+    public List<Point> query(double x0, double y0, double x1, double y1) {
+	return query(x0, y0, x1, y1, new ArrayList<>());
+    }
+
+    /**
+     * Replace the contents of out with the points whose cells touch
+     * the given rectangle, in the order they were added.  Callers
+     * still need to test the exact bounds.
+     */
+    public List<Point> query(double x0, double y0, double x1, double y1,
+			     List<Point> out) {
+	out.clear();
+	found.clear();
+	++mark;
+
+	int cx1 = cell(x1), cy1 = cell(y1);
+	for (int cx = cell(x0); cx <= cx1; ++cx) {
+	    for (int cy = cell(y0); cy <= cy1; ++cy) {
+		List<Entry> list = cells.get(cx, cy);
+		if (list == null) continue;
+		for (int i=0; i<list.size(); ++i) {
+		    Entry e = list.get(i);
+		    if (e.mark != mark) {
+			e.mark = mark;
+			found.add(e);
+		    }
+		}
+	    }
+	}
+	found.sort(BY_SEQ);
+
+	for (int i=0; i<found.size(); ++i) {
+	    out.add(found.get(i).point);
+	}
+	found.clear();
+	return out;
+    }
+
+    private int cell(double v) {
+	return (int)Math.floor(v / cellSize);
+    }
+
+    private void place(Entry e) {
+	Point p = e.point;
+	double w2 = p.getWidth()/2;
+	double h2 = p.getHeight()/2;
+	e.x0 = cell(p.x-w2);
+	e.x1 = cell(p.x+w2);
+	e.y0 = cell(p.y-h2);
+	e.y1 = cell(p.y+h2);
+
+	for (int cx = e.x0; cx <= e.x1; ++cx) {
+	    for (int cy = e.y0; cy <= e.y1; ++cy) {
+		List<Entry> list = cells.get(cx, cy);
+		if (list == null) {
+		    list = new ArrayList<>();
+		    cells.put(cx, cy, list);
+		}
+		list.add(e);
+	    }
+	}
+    }
+
+    private void unplace(Entry e) {
+	for (int cx = e.x0; cx <= e.x1; ++cx) {
+	    for (int cy = e.y0; cy <= e.y1; ++cy) {
+		List<Entry> list = cells.get(cx, cy);
+		if (list != null) list.remove(e);
+	    }
+	}
+    }
+}
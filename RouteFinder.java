@@ -0,0 +1,262 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Finds the shortest way a train can run from one piece to another,
+ * along joined track and only through each piece the way it can go,
+ * so a train coming off a turnout's leg must go out its common end.
+ * Routes are remembered until the track graph changes at one of the
+ * pieces the search looked at, so asking again is just a lookup.
+ */
+public class RouteFinder
+{
+    //forget everything rather than track which route is oldest
+    private static final int CACHE_LIMIT = 1024;
+
+    /** A way through the layout, from its first piece to its last. */
+    public static final class Route {
+	private final List<Point> pieces;
+	private final int[] enter;
+	private final int[] leave;
+	private final double length;
+
+	private Route(List<Point> pieces, int[] enter, int[] leave, double length) {
+	    this.pieces = Collections.unmodifiableList(pieces);
+	    this.enter = enter;
+	    this.leave = leave;
+	    this.length = length;
+	}
+
+	public List<Point> getPieces() {
+	    return pieces;
+	}
+
+	/** The connection of the i'th piece the train goes in by. */
+	public GlobalConnection enteredBy(int i) {
+	    return pieces.get(i).connections[enter[i]];
+	}
+
+	/** The connection of the i'th piece the train goes out by. */
+	public GlobalConnection leftBy(int i) {
+	    return pieces.get(i).connections[leave[i]];
+	}
+
+	/** Length of track run over, through all of each piece, in board pixels. */
+	public double getLength() {
+	    return length;
+	}
+    }
+
+    //a train leaving a piece by exit, having come in by enter
+    private static final class Step implements Comparable<Step> {
+	final GlobalConnection exit;
+	final int enter;
+	final Step prev;
+	final double length;
+	final double estimate;
+	final boolean arrived;
+
+	Step(GlobalConnection exit, int enter, Step prev, double length, double estimate,
+	     boolean arrived) {
+	    this.exit = exit;
+	    this.enter = enter;
+	    this.prev = prev;
+	    this.length = length;
+	    this.estimate = estimate;
+	    this.arrived = arrived;
+	}
+
+	@Override public int compareTo(Step o) {
+	    return Double.compare(estimate, o.estimate);
+	}
+    }
+
+    private static final class Key {
+	final Point from, to;
+
+	Key(Point from, Point to) {
+	    this.from = from;
+	    this.to = to;
+	}
+
+	@Override public boolean equals(Object o) {
+	    return o instanceof Key && ((Key)o).from == from && ((Key)o).to == to;
+	}
+
+	@Override public int hashCode() {
+	    return 31 * System.identityHashCode(from) + System.identityHashCode(to);
+	}
+    }
+
+    //stands for no route in the cache
+    private static final Route NONE = new Route(new ArrayList<>(), null, null, -1);
+
+    private final TrackGraph graph;
+    private final Map<Key, Route> cache = new HashMap<>();
+    //the remembered routes that rest on each piece's joints, and the other way
+    private final Map<Point, Set<Key>> uses = new HashMap<>();
+    private final Map<Key, Set<Point>> looks = new HashMap<>();
+
+    public RouteFinder(TrackGraph graph) {
+	this.graph = graph;
+	graph.addWatcher(this::forget);
+    }
+
+    /** The shortest route from one piece to another, or null if there is none. */
+    public Route find(Point from, Point to) {
+	Key key = new Key(from, to);
+	Route route = cache.get(key);
+	if (route == null) {
+	    Set<Point> looked = new HashSet<>();
+	    route = search(from, to, looked);
+	    if (cache.size() >= CACHE_LIMIT) forget(null);
+	    cache.put(key, route);
+	    looks.put(key, looked);
+	    for (Point p : looked) uses.computeIfAbsent(p, k -> new HashSet<>()).add(key);
+	}
+	return route == NONE ? null : route;
+    }
+
+    /** How many routes are remembered. */
+    public int cacheSize() {
+	return cache.size();
+    }
+
+    //pieces some remembered route rests on
+    int usedCount() {
+	return uses.size();
+    }
+
+    private void forget(Point p) {
+	if (p == null) {
+	    cache.clear();
+	    uses.clear();
+	    looks.clear();
+	    return;
+	}
+	Set<Key> keys = uses.remove(p);
+	if (keys == null) return;
+	for (Key k : keys) {
+	    cache.remove(k);
+	    //so the other pieces it looked at don't keep it
+	    for (Point q : looks.remove(k)) {
+		Set<Key> used = uses.get(q);
+		if (used == null) continue;
+		used.remove(k);
+		if (used.isEmpty()) uses.remove(q);
+	    }
+	}
+    }
+
+    //A*, over the ways out of each piece; looked gets every piece whose joints the answer rests on
+    private Route search(Point from, Point to, Set<Point> looked) {
+	looked.add(from);
+	looked.add(to);
+	if (! graph.contains(from) || ! graph.contains(to)
+	    || from.connections == null || to.connections == null) return NONE;
+
+	if (from == to) {
+	    int[] best = shortestPassage(from, -1, -1);
+	    if (best == null) return NONE;
+	    return new Route(new ArrayList<>(Collections.singletonList(from)),
+			     new int[] { best[0] }, new int[] { best[1] },
+			     from.shape.passage(best[0], best[1]));
+	}
+
+	PriorityQueue<Step> open = new PriorityQueue<>();
+	Set<GlobalConnection> closed = new HashSet<>();
+	for (int out=0; out<from.connections.length; ++out) {
+	    int[] best = shortestPassage(from, -1, out);
+	    if (best == null) continue;
+	    double length = from.shape.passage(best[0], out);
+	    GlobalConnection exit = from.connections[out];
+	    open.add(new Step(exit, best[0], null, length, length + distance(exit, to), false));
+	}
+
+	while (! open.isEmpty()) {
+	    Step step = open.poll();
+	    if (step.arrived) return route(step);
+	    if (! closed.add(step.exit)) continue;
+
+	    GlobalConnection mate = graph.mateOf(step.exit);
+	    if (mate == null) continue;
+	    Point next = mate.point;
+	    looked.add(next);
+	    int in = next.indexOf(mate);
+
+	    if (next == to) {
+		int[] best = shortestPassage(next, in, -1);
+		if (best != null) {
+		    double length = step.length + next.shape.passage(in, best[1]);
+		    open.add(new Step(next.connections[best[1]], in, step, length, length, true));
+		}
+		continue;
+	    }
+
+	    for (int out=0; out<next.connections.length; ++out) {
+		double passage = next.shape.passage(in, out);
+		GlobalConnection exit = next.connections[out];
+		if (passage < 0 || closed.contains(exit)) continue;
+		double length = step.length + passage;
+		open.add(new Step(exit, in, step, length, length + distance(exit, to), false));
+	    }
+	}
+	return NONE;
+    }
+
+    //the shortest way through p as {in, out}, either of which can be fixed; -1 leaves it free
+    private static int[] shortestPassage(Point p, int in, int out) {
+	int[] best = null;
+	double shortest = Double.MAX_VALUE;
+	int n = p.connections.length;
+	for (int i=0; i<n; ++i) {
+	    if (in >= 0 && i != in) continue;
+	    for (int o=0; o<n; ++o) {
+		if (out >= 0 && o != out) continue;
+		double passage = p.shape.passage(i, o);
+		if (passage >= 0 && passage < shortest) {
+		    shortest = passage;
+		    best = new int[] { i, o };
+		}
+	    }
+	}
+	return best;
+    }
+
+    /*
+     * As the crow flies to the nearest end of the last piece; track is
+     * never shorter, though joints a pixel apart can let it be a bit off.
+     */
+    private static double distance(GlobalConnection c, Point to) {
+	double d = Double.MAX_VALUE;
+	for (GlobalConnection e : to.connections) {
+	    d = Math.min(d, Math.hypot(e.x - c.x, e.y - c.y));
+	}
+	return d;
+    }
+
+    private static Route route(Step last) {
+	List<Point> pieces = new ArrayList<>();
+	List<int[]> ends = new ArrayList<>();
+	for (Step s = last; s != null; s = s.prev) {
+	    Point p = s.exit.point;
+	    pieces.add(p);
+	    ends.add(new int[] { s.enter, p.indexOf(s.exit) });
+	}
+	Collections.reverse(pieces);
+	Collections.reverse(ends);
+	int[] enter = new int[ends.size()];
+	int[] leave = new int[ends.size()];
+	for (int i=0; i<enter.length; ++i) {
+	    enter[i] = ends.get(i)[0];
+	    leave[i] = ends.get(i)[1];
+	}
+	return new Route(pieces, enter, leave, last.length);
+    }
+}
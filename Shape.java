@@ -1,4 +1,3 @@
-import javafx.scene.canvas.GraphicsContext;
 import javafx.scene.paint.Color;
 
 public abstract class Shape {
@@ -16,11 +15,11 @@ public abstract class Shape {
         this.height = h;
     }
 
-    abstract public void draw(GraphicsContext gc, Color color);
+    abstract public void draw(Pen pen, Color color);
 
-    public void erase(GraphicsContext gc) {
+    public void erase(Pen pen) {
         //add 1 for rotated shape
-        gc.clearRect(
+        pen.clearRect(
             -getWidth()/2-1, 
             -getHeight()/2-1,
             getWidth()+2, 
@@ -31,6 +30,46 @@ public abstract class Shape {
     public boolean hasConnections()                 { return false; }
     public Track.LocalConnection[] getConnections() { return null;  }
     public double connectionSize()                  { return 0;     }
+
+    /**
+     * How far a train travels through this piece going in at
+     * connection from and out at connection to, in board pixels, or -1
+     * if trains can't go that way.
+     */
+    public double passage(int from, int to)         { return -1;    }
+
+    /**
+     * Where a train is, in this shape's own coordinates, after going d
+     * pixels of a passage: out gets x, y, and the angle it's heading,
+     * which turns the same way as connection angles.  Each passage is
+     * taken to be a straight line or a circular arc, so it's worked out
+     * from the ends alone.
+     */
+    public void travel(int from, int to, double d, double[] out) {
+	Track.LocalConnection a = getConnections()[from];
+	Track.LocalConnection b = getConnections()[to];
+	//heading in, opposite the way the end faces
+	double ux = -Geometry.sin(a.angle), uy = Geometry.cos(a.angle);
+	double cx = b.x - a.x, cy = b.y - a.y;
+	double chord2 = cx*cx + cy*cy;
+	double cross = ux*cy - uy*cx;
+	if (Math.abs(cross) < 1e-9 * chord2) {
+	    double t = d / Math.sqrt(chord2);
+	    out[0] = a.x + cx*t;
+	    out[1] = a.y + cy*t;
+	    out[2] = a.angle + 180;
+	    return;
+	}
+
+	//around the circle tangent to the heading at a that passes through b
+	double s = Math.signum(cross);
+	double nx = -uy*s, ny = ux*s;
+	double r = chord2 / (2*Math.abs(cross));
+	double cos = Math.cos(d/r), sin = Math.sin(d/r);
+	out[0] = a.x + r*(nx - nx*cos + ux*sin);
+	out[1] = a.y + r*(ny - ny*cos + uy*sin);
+	out[2] = Math.toDegrees(Math.atan2(ux*cos + nx*sin, -(uy*cos + ny*sin)));
+    }
         
     public static class SolidSquare extends Shape 
     {
@@ -40,9 +79,9 @@ public abstract class Shape {
             super(id, w, h);
         }
         
-	public void draw(GraphicsContext gc, Color color) {
-	    gc.setFill(color);
-	    gc.fillRoundRect(
+	public void draw(Pen pen, Color color) {
+	    pen.setFill(color);
+	    pen.fillRoundRect(
 			     -getWidth()/2,
 			     -getHeight()/2,
 			     getWidth(),
@@ -59,11 +98,11 @@ public abstract class Shape {
             this.diameter = d;
         }
         
-	public void draw(GraphicsContext gc, Color color) 
+	public void draw(Pen pen, Color color) 
 	{
-            super.draw(gc, Color.LIGHTGREY);
-	    gc.setFill(color);
-	    gc.fillOval(-diameter/2, -diameter/2, diameter, diameter);
+            super.draw(pen, Color.LIGHTGREY);
+	    pen.setFill(color);
+	    pen.fillOval(-diameter/2, -diameter/2, diameter, diameter);
 	}
     }
 
@@ -0,0 +1,167 @@
+import javafx.geometry.Rectangle2D;
+import javafx.scene.SnapshotParameters;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.WritableImage;
+import javafx.scene.paint.Color;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Rendered images of track pieces, so a layout made of a few dozen
+ * kinds of track at a few angles only strokes each combination once.
+ * Images are rendered at the scale they are shown at, kept up to a
+ * byte budget, and the least recently drawn ones are dropped first.
+ * Rendering uses Canvas.snapshot, so this has to be used on the JavaFX
+ * application thread.
+ */
+public class SpriteCache
+{
+    //angles are cached in steps of 1/ANGLE_STEPS degree
+    private static final double ANGLE_STEPS = 4;
+    private static final double PAD = 2;
+
+    private static class Key {
+	final String id;
+	final long angle;
+	final Color color;
+	final boolean colorCodeCurves;
+	final boolean drawTies;
+	final Track.Detail detail;
+	final double ppi;
+	final double scale;
+
+	Key(String id, long angle, Color color, double scale) {
+	    this.id = id;
+	    this.angle = angle;
+	    this.color = color;
+	    this.colorCodeCurves = Track.colorCodeCurves;
+	    this.drawTies = Track.drawTies;
+	    this.detail = Track.detail;
+	    this.ppi = Length.ppi;
+	    this.scale = scale;
+	}
+
+	@Override public boolean equals(Object o) {
+	    if (! (o instanceof Key)) return false;
+	    Key k = (Key)o;
+	    return angle == k.angle
+		&& colorCodeCurves == k.colorCodeCurves
+		&& drawTies == k.drawTies
+		&& detail == k.detail
+		&& ppi == k.ppi
+		&& scale == k.scale
+		&& id.equals(k.id)
+		&& color.equals(k.color);
+	}
+
+	@Override public int hashCode() {
+	    return Objects.hash(id, angle, color, colorCodeCurves, drawTies, detail, ppi, scale);
+	}
+    }
+
+    private final long maxBytes;
+    private long bytes = 0;
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+
+    private final Map<Key, WritableImage> sprites = new LinkedHashMap<>(64, 0.75f, true);
+    private final SnapshotParameters snapshotParameters = new SnapshotParameters();
+    private Canvas scratch = new Canvas(1, 1);
+
+    public SpriteCache(long maxBytes) {
+	this.maxBytes = maxBytes;
+	snapshotParameters.setFill(Color.TRANSPARENT);
+    }
+
+    public long hits()      { return hits;           }
+    public long misses()    { return misses;         }
+    public long evictions() { return evictions;      }
+    public long bytes()     { return bytes;          }
+    public int size()       { return sprites.size(); }
+
+    public void clear() {
+	sprites.clear();
+	bytes = 0;
+    }
+
+    public boolean draw(GraphicsContext gc, Point p, Color color) {
+	return draw(gc, p, color, 1);
+    }
+
+    /**
+     * Draw the point from its cached image, rendering the image first
+     * if needed.  The context is expected to be scaled by scale, so the
+     * image lands one to one on screen pixels.  Returns false without
+     * drawing if the point can't be cached and should be drawn
+     * directly.
+     */
+    public boolean draw(GraphicsContext gc, Point p, Color color, double scale) {
+	if (! (p.shape instanceof Track)) return false;
+
+	double angle = p.angle % 360;
+	if (angle < 0) angle += 360;
+	long steps = Math.round(angle * ANGLE_STEPS);
+	if (Math.abs(steps - angle * ANGLE_STEPS) > 1e-6) return false;
+
+	Key key = new Key(p.shape.getId(), steps, p.floating ? Color.TRANSPARENT : color, scale);
+	WritableImage image = sprites.get(key);
+	if (image == null) {
+	    ++misses;
+	    image = render(p.shape, steps / ANGLE_STEPS, key.color, scale);
+	    sprites.put(key, image);
+	    bytes += size(image);
+	    evict();
+	} else {
+	    ++hits;
+	}
+
+	double w = image.getWidth() / scale;
+	double h = image.getHeight() / scale;
+	gc.drawImage(image, p.x - w/2, p.y - h/2, w, h);
+	return true;
+    }
+
+    private static long size(WritableImage image) {
+	return (long)image.getWidth() * (long)image.getHeight() * 4;
+    }
+
+    private void evict() {
+	Iterator<WritableImage> it = sprites.values().iterator();
+	while (bytes > maxBytes && sprites.size() > 1) {
+	    bytes -= size(it.next());
+	    it.remove();
+	    ++evictions;
+	}
+    }
+
+    private WritableImage render(Shape shape, double angle, Color color, double scale) {
+	double c = Geometry.cos(angle);
+	double s = Geometry.sin(angle);
+	double w = Geometry.halfWidth(shape.getWidth(), shape.getHeight(), c, s);
+	double h = Geometry.halfHeight(shape.getWidth(), shape.getHeight(), c, s);
+	//even sizes keep the center on a pixel boundary
+	int iw = 2 * (int)Math.ceil((w + PAD) * scale);
+	int ih = 2 * (int)Math.ceil((h + PAD) * scale);
+
+	if (scratch.getWidth() < iw || scratch.getHeight() < ih) {
+	    scratch = new Canvas(Math.max(iw, scratch.getWidth()),
+				 Math.max(ih, scratch.getHeight()));
+	}
+	GraphicsContext gc = scratch.getGraphicsContext2D();
+	gc.clearRect(0, 0, scratch.getWidth(), scratch.getHeight());
+	gc.save();
+	gc.translate(iw/2, ih/2);
+	gc.scale(scale, scale);
+	gc.rotate(angle);
+	shape.draw(new FxPen(gc), color);
+	gc.restore();
+
+	snapshotParameters.setViewport(new Rectangle2D(0, 0, iw, ih));
+	return scratch.snapshot(snapshotParameters, new WritableImage(iw, ih));
+    }
+}
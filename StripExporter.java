@@ -0,0 +1,137 @@
+import javafx.application.Platform;
+import javafx.scene.SnapshotParameters;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.function.DoubleConsumer;
+
+/**
+ * Exports the board to a PNG at any resolution without holding the
+ * whole image.  The board is drawn a strip of rows at a time on the
+ * application thread, in tiles no bigger than a texture; strips are
+ * compressed on a few threads and written in order, with only a few
+ * strips in memory at once.  Call export from a background thread.
+ */
+public class StripExporter
+{
+    //pixels per strip, 8MB of ARGB
+    private static final int STRIP_PIXELS = 2 << 20;
+    //widest canvas drawn at once
+    private static final int TILE_WIDTH = 4096;
+    private static final int MAX_THREADS = 4;
+
+    private final BoardModel model;
+    private final double width, height;
+    private final double scale;
+
+    /** Export width x height board pixels from the top left, magnified by scale. */
+    public StripExporter(BoardModel model, double width, double height, double scale) {
+	this.model = model;
+	this.width = width;
+	this.height = height;
+	this.scale = scale;
+    }
+
+    public void export(File file) throws IOException {
+	export(file, null);
+    }
+
+    /** Write the image to file, reporting the fraction done to progress if it's set. */
+    public void export(File file, DoubleConsumer progress) throws IOException {
+	int w = (int)Math.ceil(width * scale);
+	int h = (int)Math.ceil(height * scale);
+	if (w <= 0 || h <= 0) throw new IOException("nothing to export");
+	int stripRows = Math.max(1, Math.min(TILE_WIDTH, STRIP_PIXELS / w));
+
+	int threads = Math.min(MAX_THREADS, Runtime.getRuntime().availableProcessors());
+	ExecutorService pool = Executors.newFixedThreadPool(threads, r -> {
+		Thread t = new Thread(r, "export");
+		t.setDaemon(true);
+		return t;
+	    });
+	//strips drawn but not yet compressed
+	Semaphore drawn = new Semaphore(threads + 1);
+	Deque<Future<PngWriter.Band>> pending = new ArrayDeque<>();
+
+	try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file))) {
+	    PngWriter png = new PngWriter(out, w, h);
+	    int[] above = null;
+	    for (int y=0; y<h; y+=stripRows) {
+		final int rows = Math.min(stripRows, h - y);
+		final boolean last = y + rows >= h;
+		final int[] prev = above;
+
+		drawn.acquire();
+		final int[] pixels = drawStrip(y, w, rows);
+		above = new int[w];
+		System.arraycopy(pixels, (rows-1)*w, above, 0, w);
+		pending.add(pool.submit(() -> {
+			    try {
+				return PngWriter.encode(pixels, w, rows, prev, last);
+			    } finally {
+				drawn.release();
+			    }
+			}));
+
+		while (! pending.isEmpty() && pending.peek().isDone()) {
+		    png.write(pending.poll().get());
+		}
+		if (progress != null) progress.accept((double)(y + rows) / h);
+	    }
+	    while (! pending.isEmpty()) {
+		png.write(pending.poll().get());
+	    }
+	} catch (InterruptedException e) {
+	    Thread.currentThread().interrupt();
+	    throw new InterruptedIOException("export interrupted");
+	} catch (ExecutionException e) {
+	    throw new IOException("can't export: " + e.getCause(), e.getCause());
+	} finally {
+	    pool.shutdownNow();
+	}
+    }
+
+    //draw rows y..y+rows of the image on the application thread, and wait for them
+    private int[] drawStrip(int y, int w, int rows) throws InterruptedException, ExecutionException {
+	CompletableFuture<int[]> strip = new CompletableFuture<>();
+	Platform.runLater(() -> {
+		try {
+		    int[] pixels = new int[w * rows];
+		    SnapshotParameters sp = new SnapshotParameters();
+		    sp.setFill(BoardController.BOARD_COLOR);
+		    WritableImage image = null;
+		    for (int x=0; x<w; x+=TILE_WIDTH) {
+			int tw = Math.min(TILE_WIDTH, w - x);
+			Canvas tile = new Canvas(tw, rows);
+			model.drawRegion(tile.getGraphicsContext2D(), scale,
+					 x / scale, y / scale, (x + tw) / scale, (y + rows) / scale);
+			if (image == null || image.getWidth() != tw) {
+			    image = new WritableImage(tw, rows);
+			}
+			tile.snapshot(sp, image);
+			image.getPixelReader().getPixels(0, 0, tw, rows, PixelFormat.getIntArgbInstance(),
+							 pixels, x, w);
+		    }
+		    strip.complete(pixels);
+		} catch (Throwable t) {
+		    strip.completeExceptionally(t);
+		}
+	    });
+	return strip.get();
+    }
+}
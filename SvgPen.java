@@ -0,0 +1,310 @@
+import javafx.scene.paint.Color;
+import javafx.scene.shape.ArcType;
+import javafx.scene.shape.StrokeLineCap;
+import javafx.scene.transform.Affine;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Writes what's drawn as an SVG document, an element per call, so the
+ * file grows with the number of pieces rather than the resolution.
+ * Elements drawn with the same transform share a group.  Always draws
+ * in full detail.  Write errors are thrown as UncheckedIOException.
+ */
+public class SvgPen implements Pen, Closeable
+{
+    private static final class State {
+	Affine transform = new Affine();
+	Color fill = Color.BLACK;
+	Color stroke = Color.BLACK;
+	double lineWidth = 1.0;
+	StrokeLineCap lineCap = StrokeLineCap.SQUARE;
+
+	State copy() {
+	    State s = new State();
+	    s.transform = new Affine(transform);
+	    s.fill = fill;
+	    s.stroke = stroke;
+	    s.lineWidth = lineWidth;
+	    s.lineCap = lineCap;
+	    return s;
+	}
+    }
+
+    private final Writer out;
+    private final StringBuilder element = new StringBuilder(256);
+    private final Deque<State> saved = new ArrayDeque<>();
+    private State state = new State();
+    //transform of the open group, or null
+    private double[] group = null;
+
+    /**
+     * Start a document width x height board pixels, which prints at
+     * Length.ppi, filled with background.
+     */
+    public SvgPen(Writer out, double width, double height, Color background) {
+	this.out = out;
+	element.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n")
+	    .append("<svg xmlns=\"http://www.w3.org/2000/svg\" version=\"1.1\"");
+	attr("width", width / Length.ppi).append("in\"");
+	attr("height", height / Length.ppi).append("in\"");
+	element.append(" viewBox=\"0 0 ");
+	num(width).append(' ');
+	num(height).append("\">\n<rect");
+	attr("width", width).append('"');
+	attr("height", height).append('"');
+	paint("fill", background);
+	element.append("/>\n");
+	write();
+    }
+
+    /** Write the board, width x height board pixels, to an SVG file. */
+    public static void export(BoardModel board, double width, double height,
+			      Color background, File file) throws IOException {
+	Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file),
+								StandardCharsets.UTF_8));
+	try (SvgPen pen = new SvgPen(out, width, height, background)) {
+	    board.drawAll(pen);
+	} catch (UncheckedIOException e) {
+	    throw e.getCause();
+	}
+    }
+
+    @Override public Track.Detail getDetail() {
+	return Track.Detail.FULL;
+    }
+
+    @Override public void save() {
+	saved.push(state.copy());
+    }
+
+    @Override public void restore() {
+	if (! saved.isEmpty()) state = saved.pop();
+    }
+
+    @Override public void translate(double x, double y) {
+	state.transform.appendTranslation(x, y);
+    }
+
+    @Override public void rotate(double degrees) {
+	state.transform.appendRotation(degrees);
+    }
+
+    @Override public Affine getTransform() {
+	return new Affine(state.transform);
+    }
+
+    @Override public void setTransform(Affine transform) {
+	state.transform = new Affine(transform);
+    }
+
+    @Override public void setFill(Color color)          { state.fill = color;      }
+    @Override public void setStroke(Color color)        { state.stroke = color;    }
+    @Override public void setLineWidth(double width)    { state.lineWidth = width; }
+    @Override public void setLineCap(StrokeLineCap cap) { state.lineCap = cap;     }
+
+    @Override public void fillRect(double x, double y, double w, double h) {
+	if (! start("rect", state.fill)) return;
+	attr("x", x).append('"');
+	attr("y", y).append('"');
+	attr("width", w).append('"');
+	attr("height", h).append('"');
+	fill();
+    }
+
+    @Override public void fillRoundRect(double x, double y, double w, double h,
+					double arcWidth, double arcHeight) {
+	if (! start("rect", state.fill)) return;
+	attr("x", x).append('"');
+	attr("y", y).append('"');
+	attr("width", w).append('"');
+	attr("height", h).append('"');
+	attr("rx", Math.min(arcWidth, w) / 2).append('"');
+	attr("ry", Math.min(arcHeight, h) / 2).append('"');
+	fill();
+    }
+
+    @Override public void fillOval(double x, double y, double w, double h) {
+	if (! start("ellipse", state.fill)) return;
+	ellipse(x, y, w, h);
+	fill();
+    }
+
+    @Override public void fillArc(double x, double y, double w, double h,
+				  double startAngle, double arcExtent, ArcType closure) {
+	if (Math.abs(arcExtent) >= 360) {
+	    fillOval(x, y, w, h);
+	    return;
+	}
+	if (! start("path", state.fill)) return;
+	arc(x, y, w, h, startAngle, arcExtent, closure == ArcType.OPEN ? ArcType.CHORD : closure);
+	fill();
+    }
+
+    @Override public void strokeLine(double x1, double y1, double x2, double y2) {
+	if (! start("line", state.stroke)) return;
+	attr("x1", x1).append('"');
+	attr("y1", y1).append('"');
+	attr("x2", x2).append('"');
+	attr("y2", y2).append('"');
+	stroke();
+    }
+
+    @Override public void strokeArc(double x, double y, double w, double h,
+				    double startAngle, double arcExtent, ArcType closure) {
+	if (Math.abs(arcExtent) >= 360) {
+	    if (! start("ellipse", state.stroke)) return;
+	    ellipse(x, y, w, h);
+	} else {
+	    if (! start("path", state.stroke)) return;
+	    arc(x, y, w, h, startAngle, arcExtent, closure);
+	}
+	element.append(" fill=\"none\"");
+	stroke();
+    }
+
+    //nothing to erase in a document that's only ever drawn on
+    @Override public void clearRect(double x, double y, double w, double h) {
+    }
+
+    /** Finish the document and close the writer. */
+    @Override public void close() throws IOException {
+	try {
+	    if (group != null) element.append("</g>\n");
+	    element.append("</svg>\n");
+	    write();
+	} finally {
+	    out.close();
+	}
+    }
+
+    //begin an element in the current transform, unless its color can't be seen
+    private boolean start(String name, Color color) {
+	if (color.getOpacity() == 0) return false;
+	Affine t = state.transform;
+	double[] m = { t.getMxx(), t.getMyx(), t.getMxy(), t.getMyy(), t.getTx(), t.getTy() };
+	if (group == null || ! java.util.Arrays.equals(group, m)) {
+	    if (group != null) element.append("</g>\n");
+	    element.append("<g transform=\"matrix(");
+	    for (int i=0; i<m.length; ++i) {
+		if (i > 0) element.append(' ');
+		//rotations need more places than positions
+		num(m[i], i < 4 ? 1000000 : 1000);
+	    }
+	    element.append(")\">\n");
+	    group = m;
+	}
+	element.append('<').append(name);
+	return true;
+    }
+
+    private void fill() {
+	paint("fill", state.fill);
+	element.append("/>\n");
+	write();
+    }
+
+    private void stroke() {
+	paint("stroke", state.stroke);
+	attr("stroke-width", state.lineWidth).append('"');
+	element.append(" stroke-linecap=\"").append(state.lineCap.name().toLowerCase()).append('"');
+	element.append("/>\n");
+	write();
+    }
+
+    private void ellipse(double x, double y, double w, double h) {
+	attr("cx", x + w/2).append('"');
+	attr("cy", y + h/2).append('"');
+	attr("rx", w/2).append('"');
+	attr("ry", h/2).append('"');
+    }
+
+    //angles go counterclockwise from 3 o'clock, as on a canvas
+    private void arc(double x, double y, double w, double h,
+		     double startAngle, double arcExtent, ArcType closure) {
+	double rx = w/2, ry = h/2;
+	double cx = x + rx, cy = y + ry;
+	double a0 = Math.toRadians(startAngle);
+	double a1 = Math.toRadians(startAngle + arcExtent);
+
+	element.append(" d=\"M");
+	num(cx + rx*Math.cos(a0)).append(' ');
+	num(cy - ry*Math.sin(a0)).append(" A");
+	num(rx).append(' ');
+	num(ry).append(" 0 ");
+	element.append(Math.abs(arcExtent) > 180 ? '1' : '0').append(' ');
+	element.append(arcExtent > 0 ? '0' : '1').append(' ');
+	num(cx + rx*Math.cos(a1)).append(' ');
+	num(cy - ry*Math.sin(a1));
+	if (closure == ArcType.ROUND) {
+	    element.append(" L");
+	    num(cx).append(' ');
+	    num(cy);
+	}
+	if (closure != ArcType.OPEN) element.append(" Z");
+	element.append('"');
+    }
+
+    private void paint(String name, Color color) {
+	element.append(' ').append(name).append("=\"#");
+	hex(color.getRed()).hex(color.getGreen()).hex(color.getBlue());
+	element.append('"');
+	if (color.getOpacity() < 1) {
+	    attr(name + "-opacity", color.getOpacity()).append('"');
+	}
+    }
+
+    private SvgPen hex(double component) {
+	int c = (int)Math.round(component * 255);
+	element.append(Character.forDigit(c >> 4, 16)).append(Character.forDigit(c & 15, 16));
+	return this;
+    }
+
+    //starts an attribute; the caller closes the quote, or adds a unit first
+    private StringBuilder attr(String name, double value) {
+	element.append(' ').append(name).append("=\"");
+	return num(value);
+    }
+
+    //to a thousandth of a pixel, without String.format, which is slow
+    private StringBuilder num(double value) {
+	return num(value, 1000);
+    }
+
+    private StringBuilder num(double value, int unit) {
+	long n = Math.round(value * unit);
+	if (n < 0) {
+	    element.append('-');
+	    n = -n;
+	}
+	element.append(n / unit);
+	long frac = n % unit;
+	if (frac != 0) {
+	    element.append('.');
+	    for (long d = unit/10; d > frac; d /= 10) element.append('0');
+	    while (frac % 10 == 0) frac /= 10;
+	    element.append(frac);
+	}
+	return element;
+    }
+
+    private void write() {
+	try {
+	    out.append(element);
+	} catch (IOException e) {
+	    throw new UncheckedIOException(e);
+	} finally {
+	    element.setLength(0);
+	}
+    }
+}
@@ -0,0 +1,142 @@
+import javafx.geometry.Rectangle2D;
+import javafx.scene.SnapshotParameters;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.WritableImage;
+import javafx.scene.paint.Color;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The fixed layer cut into square tiles of the scaled board, each kept
+ * as a rendered image.  Painting copies tiles onto the canvas, so
+ * panning only renders the tiles that come into view, and a change
+ * only renders the tiles it touches again.  Tiles are dropped least
+ * recently used first once over the byte budget, and all of them when
+ * the scale changes.  Rendering uses Canvas.snapshot, so this has to be
+ * used on the JavaFX application thread.
+ */
+public class TileCache
+{
+    public static final int TILE_SIZE = 256;
+
+    /** Draws the part of the board from x0,y0 to x1,y1 into gc. */
+    public interface Renderer {
+	void render(GraphicsContext gc, double x0, double y0, double x1, double y1);
+    }
+
+    private final long maxBytes;
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+    private double scale = 1;
+
+    private final Map<Long, WritableImage> tiles = new LinkedHashMap<>(64, 0.75f, true);
+    private final SnapshotParameters snapshotParameters = new SnapshotParameters();
+    private final Canvas scratch = new Canvas(TILE_SIZE, TILE_SIZE);
+
+    public TileCache(long maxBytes) {
+	this.maxBytes = maxBytes;
+	snapshotParameters.setFill(Color.TRANSPARENT);
+	snapshotParameters.setViewport(new Rectangle2D(0, 0, TILE_SIZE, TILE_SIZE));
+    }
+
+    public long hits()      { return hits;         }
+    public long misses()    { return misses;       }
+    public long evictions() { return evictions;    }
+    public long bytes()     { return (long)tiles.size() * TILE_SIZE * TILE_SIZE * 4; }
+    public int size()       { return tiles.size(); }
+
+    public void clear() {
+	tiles.clear();
+    }
+
+    public void setScale(double scale) {
+	if (scale != this.scale) {
+	    this.scale = scale;
+	    clear();
+	}
+    }
+
+    /** Drop the tiles that cover any of the board from x0,y0 to x1,y1. */
+    public void invalidate(double x0, double y0, double x1, double y1) {
+	int tx0 = tile(x0), tx1 = tile(x1);
+	int ty0 = tile(y0), ty1 = tile(y1);
+
+	//a big area on a zoomed in board can span far more tiles than are cached
+	if ((long)(tx1 - tx0 + 1) * (ty1 - ty0 + 1) > tiles.size()) {
+	    Iterator<Long> it = tiles.keySet().iterator();
+	    while (it.hasNext()) {
+		long key = it.next();
+		int tx = (int)(key >> 32);
+		int ty = (int)key;
+		if (tx >= tx0 && tx <= tx1 && ty >= ty0 && ty <= ty1) it.remove();
+	    }
+	    return;
+	}
+	for (int tx = tx0; tx <= tx1; ++tx) {
+	    for (int ty = ty0; ty <= ty1; ++ty) {
+		tiles.remove(key(tx, ty));
+	    }
+	}
+    }
+
+    /**
+     * Copy the tiles covering the screen rectangle x,y,w,h of a view
+     * with originX,originY at the top left, rendering any that aren't
+     * cached.  The caller clears and clips gc to the rectangle.
+     */
+    public void paint(GraphicsContext gc, double originX, double originY,
+		      double x, double y, double w, double h, Renderer renderer) {
+	double left = originX * scale;
+	double top = originY * scale;
+	int tx1 = (int)Math.floor((left + x + w) / TILE_SIZE);
+	int ty1 = (int)Math.floor((top + y + h) / TILE_SIZE);
+	for (int tx = (int)Math.floor((left + x) / TILE_SIZE); tx <= tx1; ++tx) {
+	    for (int ty = (int)Math.floor((top + y) / TILE_SIZE); ty <= ty1; ++ty) {
+		WritableImage image = tiles.get(key(tx, ty));
+		if (image == null) {
+		    ++misses;
+		    image = render(tx, ty, renderer);
+		    tiles.put(key(tx, ty), image);
+		    evict();
+		} else {
+		    ++hits;
+		}
+		gc.drawImage(image, (double)tx * TILE_SIZE - left, (double)ty * TILE_SIZE - top);
+	    }
+	}
+    }
+
+    private int tile(double v) {
+	return (int)Math.floor(v * scale / TILE_SIZE);
+    }
+
+    private static long key(int tx, int ty) {
+	return ((long)tx << 32) | (ty & 0xffffffffL);
+    }
+
+    private void evict() {
+	Iterator<WritableImage> it = tiles.values().iterator();
+	while (bytes() > maxBytes && tiles.size() > 1) {
+	    it.next();
+	    it.remove();
+	    ++evictions;
+	}
+    }
+
+    private WritableImage render(int tx, int ty, Renderer renderer) {
+	GraphicsContext gc = scratch.getGraphicsContext2D();
+	gc.clearRect(0, 0, TILE_SIZE, TILE_SIZE);
+	gc.save();
+	gc.translate(-(double)tx * TILE_SIZE, -(double)ty * TILE_SIZE);
+	gc.scale(scale, scale);
+	renderer.render(gc,
+			(double)tx * TILE_SIZE / scale, (double)ty * TILE_SIZE / scale,
+			(double)(tx+1) * TILE_SIZE / scale, (double)(ty+1) * TILE_SIZE / scale);
+	gc.restore();
+	return scratch.snapshot(snapshotParameters, new WritableImage(TILE_SIZE, TILE_SIZE));
+    }
+}
@@ -1,10 +1,8 @@
-import javafx.scene.canvas.GraphicsContext;
 import javafx.scene.paint.Color;
 import javafx.scene.shape.ArcType;
 import javafx.scene.shape.StrokeLineCap;
 import javafx.scene.transform.Affine;
 import javafx.geometry.Point2D;
-import javafx.scene.transform.Rotate;
 
 abstract public class Track extends Shape {
     public final TrackScale scale;
@@ -20,6 +18,41 @@ abstract public class Track extends Shape {
         
     public static boolean colorCodeCurves = true;
     public static boolean drawTies = true;
+
+    /**
+     * How much of each piece to draw: everything, everything but the
+     * ties, or just the centerline in the ballast color.
+     */
+    public static enum Detail {
+        FULL, MEDIUM, OVERVIEW;
+    }
+    //the board as viewed; an FxPen draws at this unless told otherwise
+    public static Detail detail = Detail.FULL;
+
+    //below these effective pixels per inch, ties and then rails are a blur
+    private static final double MEDIUM_PPI = 16;
+    private static final double OVERVIEW_PPI = 6;
+
+    public static Detail detailFor(double ppi) {
+        if (ppi < OVERVIEW_PPI) return Detail.OVERVIEW;
+        if (ppi < MEDIUM_PPI) return Detail.MEDIUM;
+        return Detail.FULL;
+    }
+
+    protected static boolean showTies(Pen pen) {
+        return drawTies && pen.getDetail() == Detail.FULL;
+    }
+
+    protected static boolean overview(Pen pen) {
+        return pen.getDetail() == Detail.OVERVIEW;
+    }
+
+    /** Set up to stroke a centerline the width of the ballast. */
+    protected void centerline(Pen pen, Color color) {
+        pen.setStroke(color);
+        pen.setLineWidth(scale.ballastWidth());
+        pen.setLineCap(StrokeLineCap.BUTT);
+    }
     
     protected Track(String id, double w, double h, TrackScale ts, int connections) {
         super(id, w, h);
@@ -32,10 +65,12 @@ abstract public class Track extends Shape {
     @Override public LocalConnection[] getConnections() { return connections; }
     @Override public double connectionSize()            { return gauge * 2;   }
 
-    protected void drawIndicators(GraphicsContext gc, Color color) {
-        gc.setFill(color.interpolate(Color.TRANSPARENT, 0.6));
+    protected void drawIndicators(Pen pen, Color color) {
+        //joiners are a pixel or two across at overview, not worth the fills
+        if (overview(pen)) return;
+        pen.setFill(color.interpolate(Color.TRANSPARENT, 0.6));
         for (LocalConnection c : connections) {
-            gc.fillArc(c.x-gauge/2, c.y-gauge/2, gauge, gauge, 180-c.angle, 180, ArcType.CHORD);
+            pen.fillArc(c.x-gauge/2, c.y-gauge/2, gauge, gauge, 180-c.angle, 180, ArcType.CHORD);
         }
     }
 
@@ -79,10 +114,13 @@ abstract public class Track extends Shape {
         //return BALLAST_COLOR.interpolate(Color.RED, getCurviness() * 20);
         //should find min/max to get a scale factor
 
-        return colorCodeCurves?
-	    Color.hsb(getCurviness()*20*360, 0.18, 0.9):
-	    BALLAST_COLOR;
+        if (! colorCodeCurves) return BALLAST_COLOR;
+        if (curveColor == null) {
+            curveColor = Color.hsb(getCurviness()*20*360, 0.18, 0.9);
+        }
+        return curveColor;
     }
+    private Color curveColor = null;
     
     public static class Straight extends Track {
 	private final int nties;
@@ -97,34 +135,44 @@ abstract public class Track extends Shape {
             connections[1] = new LocalConnection(0, +h/2, 180);
         }
         
-        public void draw(GraphicsContext gc, Color color) {
+        @Override public double passage(int from, int to) {
+            return from + to == 1 ? getHeight() : -1;
+        }
+
+        public void draw(Pen pen, Color color) {
+            if (overview(pen)) {
+                centerline(pen, BALLAST_COLOR);
+                pen.strokeLine(0, -getHeight()/2, 0, getHeight()/2);
+                return;
+            }
+
             //ballast
-	    gc.setFill(BALLAST_COLOR);
-	    gc.fillRect(-getWidth()/2, -getHeight()/2, getWidth(), getHeight());
+	    pen.setFill(BALLAST_COLOR);
+	    pen.fillRect(-getWidth()/2, -getHeight()/2, getWidth(), getHeight());
 
             //ties
-	    if (drawTies) {
-		gc.setStroke(TIE_COLOR);
-		gc.setLineCap(StrokeLineCap.BUTT);
-		gc.setLineWidth(scale.tieWidth());
+	    if (showTies(pen)) {
+		pen.setStroke(TIE_COLOR);
+		pen.setLineCap(StrokeLineCap.BUTT);
+		pen.setLineWidth(scale.tieWidth());
 		double tieX = scale.tieLength()/2.0;
 	
 		for (int i=0; i < nties; ++i) {
 		    double h = getHeight();
 		    double y = -h/2 + h*(1.0/nties)*i + h*0.5/nties;
-		    gc.strokeLine(-tieX, y, tieX, y);
+		    pen.strokeLine(-tieX, y, tieX, y);
 		}
 	    }
 	    
             //rails
-            gc.setStroke(RAIL_COLOR);
-            gc.setLineWidth(scale.railWidth());
+            pen.setStroke(RAIL_COLOR);
+            pen.setLineWidth(scale.railWidth());
                 
             double g2 = gauge/2;
-            gc.strokeLine(-g2, -getHeight()/2, -g2, getHeight()/2);
-            gc.strokeLine(+g2, -getHeight()/2, +g2, getHeight()/2);
+            pen.strokeLine(-g2, -getHeight()/2, -g2, getHeight()/2);
+            pen.strokeLine(+g2, -getHeight()/2, +g2, getHeight()/2);
 
-            drawIndicators(gc, color);
+            drawIndicators(pen, color);
         }
         
     }
@@ -144,49 +192,59 @@ abstract public class Track extends Shape {
             connections[1] = new LocalConnection(0, +h/2, 180);
         }
         
-        public void draw(GraphicsContext gc, Color color) 
+        public void draw(Pen pen, Color color) 
             {
+                if (overview(pen)) {
+                    pen.setStroke(Color.BLACK);
+                    pen.setLineWidth(roadWidth);
+                    pen.setLineCap(StrokeLineCap.BUTT);
+                    pen.strokeLine(-getHeight()/2, 0, getHeight()/2, 0);
+                    centerline(pen, BALLAST_COLOR);
+                    pen.strokeLine(0, -getHeight()/2, 0, getHeight()/2);
+                    return;
+                }
+
                 //ballast
-                gc.setFill(BALLAST_COLOR);
-                gc.fillRect(-scale.ballastWidth()/2, -getHeight()/2, scale.ballastWidth(), getHeight());
+                pen.setFill(BALLAST_COLOR);
+                pen.fillRect(-scale.ballastWidth()/2, -getHeight()/2, scale.ballastWidth(), getHeight());
 
                 double tieX = scale.tieLength()/2;
                 double roadX = scale.ballastWidth()/2;
                 
-                gc.setLineCap(StrokeLineCap.BUTT);
+                pen.setLineCap(StrokeLineCap.BUTT);
             
                 //road
-                gc.setFill(Color.BLACK);
-                gc.fillRoundRect(-getHeight()/2, -roadWidth/2, getHeight(), roadWidth, 10, 10);
-                gc.setStroke(Color.YELLOW);
-                gc.setLineWidth(1.0);
-                gc.strokeLine(-getHeight()/2, 0, -roadX, 0);
-                gc.strokeLine(+roadX, 0, getHeight()/2, 0);
+                pen.setFill(Color.BLACK);
+                pen.fillRoundRect(-getHeight()/2, -roadWidth/2, getHeight(), roadWidth, 10, 10);
+                pen.setStroke(Color.YELLOW);
+                pen.setLineWidth(1.0);
+                pen.strokeLine(-getHeight()/2, 0, -roadX, 0);
+                pen.strokeLine(+roadX, 0, getHeight()/2, 0);
                 
                 //ties
-		if (drawTies) {
-		    gc.setStroke(TIE_COLOR);
+		if (showTies(pen)) {
+		    pen.setStroke(TIE_COLOR);
 
-		    gc.setLineWidth(scale.tieWidth());
+		    pen.setLineWidth(scale.tieWidth());
                 
 		    for (int i=0; i<nties; ++i) {
 			double h = getHeight();
 			double y = -h/2 + h/nties*i + h*0.5/nties;
-			gc.strokeLine(-tieX, y, tieX, y);
+			pen.strokeLine(-tieX, y, tieX, y);
 		    }
 		}
 
                 //rails
-                gc.setStroke(RAIL_COLOR);
-                gc.setLineWidth(scale.railWidth());
+                pen.setStroke(RAIL_COLOR);
+                pen.setLineWidth(scale.railWidth());
                 
                 //double gauge = w*0.4;
                 double gauge = scale.railGauge()/2;
                 
-                gc.strokeLine(-gauge, -getHeight()/2, -gauge, getHeight()/2);
-                gc.strokeLine(+gauge, -getHeight()/2, +gauge, getHeight()/2);
+                pen.strokeLine(-gauge, -getHeight()/2, -gauge, getHeight()/2);
+                pen.strokeLine(+gauge, -getHeight()/2, +gauge, getHeight()/2);
 
-                drawIndicators(gc, color);
+                drawIndicators(pen, color);
             }
         
     }
@@ -206,102 +264,116 @@ abstract public class Track extends Shape {
             this.h = length.getPixels();
 	    this.nties = ((int)length.getInches() * TIES_PER_IN);
 	    
-            Point2D p1 = new Rotate(angle).transform(0, -h/2);
-            Point2D p2 = new Rotate(180+angle).transform(0, -h/2);
+            double[] p1 = new double[2];
+            double[] p2 = new double[2];
+            Geometry.rotate(angle, 0, 0, 0, -h/2, p1);
+            Geometry.rotate(180+angle, 0, 0, 0, -h/2, p2);
 	    connections[0] = new LocalConnection(0, -h/2, 0);
-	    connections[1] = new LocalConnection(p1.getX(), p1.getY(), angle);
+	    connections[1] = new LocalConnection(p1[0], p1[1], angle);
 	    connections[2] = new LocalConnection(0, +h/2, 180);
-	    connections[3] = new LocalConnection(p2.getX(), p2.getY(), 180+angle);
+	    connections[3] = new LocalConnection(p2[0], p2[1], 180+angle);
+        }
+
+        //straight across, 0 to 2 or 1 to 3
+        @Override public double passage(int from, int to) {
+            return Math.abs(from - to) == 2 ? h : -1;
         }
 
-        public void draw(GraphicsContext gc, Color color) {
-            Affine vert = gc.getTransform();
+        public void draw(Pen pen, Color color) {
+            if (overview(pen)) {
+                centerline(pen, BALLAST_COLOR);
+                pen.strokeLine(connections[0].x, connections[0].y, connections[2].x, connections[2].y);
+                pen.strokeLine(connections[1].x, connections[1].y, connections[3].x, connections[3].y);
+                return;
+            }
+
+            Affine vert = pen.getTransform();
             Affine horiz = new Affine(vert);
             horiz.appendRotation(angle);
             
             //ballast
-	    gc.setFill(BALLAST_COLOR);
-	    gc.fillRect(-trackWidth/2, -getHeight()/2, trackWidth, getHeight());
+	    pen.setFill(BALLAST_COLOR);
+	    pen.fillRect(-trackWidth/2, -getHeight()/2, trackWidth, getHeight());
 
-            gc.setTransform(horiz);
-	    gc.fillRect(-trackWidth/2, -getHeight()/2, trackWidth, getHeight());
+            pen.setTransform(horiz);
+	    pen.fillRect(-trackWidth/2, -getHeight()/2, trackWidth, getHeight());
             
             // center
             double tieX = trackWidth*0.45;
             double arc2 = 4;
-            gc.setFill(TIE_COLOR);
-            gc.setTransform(vert);
+            pen.setFill(TIE_COLOR);
+            pen.setTransform(vert);
 
-            gc.fillRoundRect(-tieX, -tieX*2, tieX*2, tieX*4, arc2, arc2);
-            gc.setTransform(horiz);
-            gc.fillRoundRect(-tieX, -tieX*2, tieX*2, tieX*4, arc2, arc2);
+            pen.fillRoundRect(-tieX, -tieX*2, tieX*2, tieX*4, arc2, arc2);
+            pen.setTransform(horiz);
+            pen.fillRoundRect(-tieX, -tieX*2, tieX*2, tieX*4, arc2, arc2);
             
 	    //ties - TODO clip section to prevent overlap
 	    // FIXME - ties are too wide!
-	    if (drawTies) {
+	    if (showTies(pen)) {
 		double tieX2 = scale.tieLength()/2.0;
 		
-		gc.setStroke(TIE_COLOR);
-		gc.setLineWidth(scale.tieWidth());
+		pen.setStroke(TIE_COLOR);
+		pen.setLineWidth(scale.tieWidth());
 
-		gc.setTransform(vert);
+		pen.setTransform(vert);
                 
 		for (int i=0; i<nties; ++i) {
 		    double h = getHeight();
 		    double y = -h/2 + h/nties*i + h/nties*0.5;
-		    gc.strokeLine(-tieX2, y, tieX2, y);
+		    pen.strokeLine(-tieX2, y, tieX2, y);
 		}
 
-		gc.setTransform(horiz);
+		pen.setTransform(horiz);
 
 		for (int i=0; i<nties; ++i) {
 		    double h = getHeight();
 		    double y = -h/2 + h/nties*i + h/nties*0.5;
-		    gc.strokeLine(-tieX2, y, tieX2, y);
+		    pen.strokeLine(-tieX2, y, tieX2, y);
 		}
 
 	    }
 
 
             //rails
-            gc.setStroke(RAIL_COLOR);
-            gc.setLineWidth(scale.railWidth());
+            pen.setStroke(RAIL_COLOR);
+            pen.setLineWidth(scale.railWidth());
                 
             //double gauge = trackWidth*0.4;
             double gauge = scale.railGauge()/2;
             
-            gc.setTransform(vert);
-            gc.strokeLine(-gauge, -getHeight()/2, -gauge, getHeight()/2);
-            gc.strokeLine(+gauge, -getHeight()/2, +gauge, getHeight()/2);
+            pen.setTransform(vert);
+            pen.strokeLine(-gauge, -getHeight()/2, -gauge, getHeight()/2);
+            pen.strokeLine(+gauge, -getHeight()/2, +gauge, getHeight()/2);
 
-            gc.setStroke(RAIL_COLOR);
-            gc.setTransform(horiz);
-            gc.strokeLine(-gauge, -getHeight()/2, -gauge, getHeight()/2);
-            gc.strokeLine(+gauge, -getHeight()/2, +gauge, getHeight()/2);
+            pen.setStroke(RAIL_COLOR);
+            pen.setTransform(horiz);
+            pen.strokeLine(-gauge, -getHeight()/2, -gauge, getHeight()/2);
+            pen.strokeLine(+gauge, -getHeight()/2, +gauge, getHeight()/2);
 
-            gc.setStroke(TIE_COLOR);
-            gc.setLineCap(StrokeLineCap.BUTT);
+            pen.setStroke(TIE_COLOR);
+            pen.setLineCap(StrokeLineCap.BUTT);
             double rw = scale.railWidth() / 1.5;
-            gc.setLineWidth(scale.railWidth() / 2);
+            pen.setLineWidth(scale.railWidth() / 2);
             
-            gc.strokeLine(-gauge+rw, -tieX*2, -gauge+rw, +tieX*2);
-            gc.strokeLine(+gauge-rw, -tieX*2, +gauge-rw, +tieX*2);
+            pen.strokeLine(-gauge+rw, -tieX*2, -gauge+rw, +tieX*2);
+            pen.strokeLine(+gauge-rw, -tieX*2, +gauge-rw, +tieX*2);
 
-            gc.setTransform(vert);
+            pen.setTransform(vert);
 
-            gc.strokeLine(-gauge+rw, -tieX*2, -gauge+rw, +tieX*2);
-            gc.strokeLine(+gauge-rw, -tieX*2, +gauge-rw, +tieX*2);
+            pen.strokeLine(-gauge+rw, -tieX*2, -gauge+rw, +tieX*2);
+            pen.strokeLine(+gauge-rw, -tieX*2, +gauge-rw, +tieX*2);
 
 
-            drawIndicators(gc, color);
+            drawIndicators(pen, color);
             /*
-            gc.setFill(color.interpolate(Color.TRANSPARENT, 0.6));
-            gc.setTransform(vert);
-            gc.fillOval(-gauge, -getHeight()/2, 2*gauge, 2*gauge);
-            gc.fillOval(-gauge, +getHeight()/2-2*gauge, 2*gauge, 2*gauge);
-            gc.setTransform(horiz);
-            gc.fillOval(-gauge, -getHeight()/2, 2*gauge, 2*gauge);
-            gc.fillOval(-gauge, +getHeight()/2-2*gauge, 2*gauge, 2*gauge);
+            pen.setFill(color.interpolate(Color.TRANSPARENT, 0.6));
+            pen.setTransform(vert);
+            pen.fillOval(-gauge, -getHeight()/2, 2*gauge, 2*gauge);
+            pen.fillOval(-gauge, +getHeight()/2-2*gauge, 2*gauge, 2*gauge);
+            pen.setTransform(horiz);
+            pen.fillOval(-gauge, -getHeight()/2, 2*gauge, 2*gauge);
+            pen.fillOval(-gauge, +getHeight()/2-2*gauge, 2*gauge, 2*gauge);
             */
         }
         
@@ -338,34 +410,41 @@ abstract public class Track extends Shape {
 
 	    double r = radius.getPixels();
 	    
-            Point2D p1 = new Rotate(+angle/2, r, 0).transform(0,0);
-            Point2D p2 = new Rotate(-angle/2, r, 0).transform(0,0);
-	    connections[0] = new LocalConnection(p1.getX(), p1.getY(), angle/2);
-	    connections[1] = new LocalConnection(p2.getX(), p2.getY(), 180-angle/2);
+            double[] p1 = new double[2];
+            double[] p2 = new double[2];
+            Geometry.rotate(+angle/2, r, 0, 0, 0, p1);
+            Geometry.rotate(-angle/2, r, 0, 0, 0, p2);
+	    connections[0] = new LocalConnection(p1[0], p1[1], angle/2);
+	    connections[1] = new LocalConnection(p2[0], p2[1], 180-angle/2);
 
             System.out.printf("Curviness(%g) = %g\n", radius.getInches(), getCurviness());
 	}
-        public void draw(GraphicsContext gc, Color color) {
+        @Override public double passage(int from, int to) {
+            return from + to == 1 ? radius * Math.toRadians(angle) : -1;
+        }
+
+        public void draw(Pen pen, Color color) {
             //ballast
-	    //gc.setStroke(BALLAST_COLOR);
-            gc.setStroke(getCurveColor());
+	    //pen.setStroke(BALLAST_COLOR);
+            pen.setStroke(getCurveColor());
             
 	    double lw = scale.ballastWidth();
-            gc.setLineWidth(lw);
-            gc.setLineCap(StrokeLineCap.BUTT);
+            pen.setLineWidth(lw);
+            pen.setLineCap(StrokeLineCap.BUTT);
 	    
 	    double x=0, y=0, r=radius, ad=angle;
             double d = 2 * r;
             
-            gc.strokeArc(x, y-r, d, d, 180-ad/2, ad, ArcType.OPEN);
+            pen.strokeArc(x, y-r, d, d, 180-ad/2, ad, ArcType.OPEN);
+            if (overview(pen)) return;
 
 	    //ties
-	    if (drawTies) {
-		gc.setStroke(TIE_COLOR);
-		gc.setLineWidth(scale.tieWidth());
+	    if (showTies(pen)) {
+		pen.setStroke(TIE_COLOR);
+		pen.setLineWidth(scale.tieWidth());
 		double tieX = scale.tieLength()/2;
 
-		Affine base = gc.getTransform();
+		Affine base = pen.getTransform();
 		Point2D center = new Point2D(r,0);
 		Affine tieTransform = new Affine(base);
 		//rotate 1/2 space before start of track
@@ -375,22 +454,22 @@ abstract public class Track extends Shape {
 	    
 		for (int i=0; i<nties; ++i) {
 		    tieTransform.appendRotation(delta, center);
-		    gc.setTransform(tieTransform);
-		    gc.strokeLine(-tieX,0,+tieX,0);
+		    pen.setTransform(tieTransform);
+		    pen.strokeLine(-tieX,0,+tieX,0);
 		}
-		gc.setTransform(base);
+		pen.setTransform(base);
 	    }
 	    
 	    // rails
 	    double gauge = scale.railGauge()/2;
-	    gc.setLineWidth(scale.railWidth());
-	    gc.setStroke(RAIL_COLOR);
+	    pen.setLineWidth(scale.railWidth());
+	    pen.setStroke(RAIL_COLOR);
 	    d = 2*(r+gauge);
-	    gc.strokeArc(-gauge, -(r+gauge), d, d, 180-ad/2, ad, ArcType.OPEN); //left
+	    pen.strokeArc(-gauge, -(r+gauge), d, d, 180-ad/2, ad, ArcType.OPEN); //left
 	    d = 2*(r-gauge);
-	    gc.strokeArc(+gauge, -(r-gauge), d, d, 180-ad/2, ad, ArcType.OPEN); //right
+	    pen.strokeArc(+gauge, -(r-gauge), d, d, 180-ad/2, ad, ArcType.OPEN); //right
 
-            drawIndicators(gc, color);
+            drawIndicators(pen, color);
 	}
 	
     }
@@ -460,68 +539,76 @@ abstract public class Track extends Shape {
 	}
 
  
-        public void draw(GraphicsContext gc, Color color) {
+        //the common end leads to every leg, and every leg only back to it
+        @Override public double passage(int from, int to) {
+            if (from == to || (from != 0 && to != 0)) return -1;
+            int leg = from + to;
+            return leg == 1 ? length : radius * Math.toRadians(angle);
+        }
+
+        public void draw(Pen pen, Color color) {
             //ballast
-	    gc.setStroke(BALLAST_COLOR);
+	    pen.setStroke(BALLAST_COLOR);
 	    double lw = scale.ballastWidth();
-            gc.setLineWidth(lw);
-            gc.setLineCap(StrokeLineCap.BUTT);
+            pen.setLineWidth(lw);
+            pen.setLineCap(StrokeLineCap.BUTT);
 
             double h = length;
             double d = radius * 2;
 
-            if (hand.right()) gc.strokeArc(0,        -radius + yoff, d, d, 180, -angle, ArcType.OPEN);
-            if (hand.left()) gc.strokeArc(-2*radius, -radius + yoff, d, d,   0, +angle, ArcType.OPEN);
-            gc.strokeLine(0, yoff, 0, yoff - h);
+            if (hand.right()) pen.strokeArc(0,        -radius + yoff, d, d, 180, -angle, ArcType.OPEN);
+            if (hand.left()) pen.strokeArc(-2*radius, -radius + yoff, d, d,   0, +angle, ArcType.OPEN);
+            pen.strokeLine(0, yoff, 0, yoff - h);
+            if (overview(pen)) return;
 
             //rails
-            gc.setStroke(RAIL_COLOR);
-            gc.setLineWidth(scale.railWidth());
+            pen.setStroke(RAIL_COLOR);
+            pen.setLineWidth(scale.railWidth());
                 
             //straight rails
             double g2 = gauge/2;
-            gc.strokeLine(-g2, -getHeight()/2, -g2, getHeight()/2);
-            gc.strokeLine(+g2, -getHeight()/2, +g2, getHeight()/2);
+            pen.strokeLine(-g2, -getHeight()/2, -g2, getHeight()/2);
+            pen.strokeLine(+g2, -getHeight()/2, +g2, getHeight()/2);
 
             double r = radius;
             if (hand.right()) {
                 //RH rails
                 d = 2*(r+g2);
-                gc.strokeArc(-g2, -d/2 + yoff, d, d, 180, -angle, ArcType.OPEN);  //RH
+                pen.strokeArc(-g2, -d/2 + yoff, d, d, 180, -angle, ArcType.OPEN);  //RH
                 d = 2*(r-g2);
-                gc.strokeArc(+g2, -d/2 + yoff, d, d, 180, -angle, ArcType.OPEN);  //RH
+                pen.strokeArc(+g2, -d/2 + yoff, d, d, 180, -angle, ArcType.OPEN);  //RH
             }
             if (hand.left()) {
                 //LH rails
                 d = 2*(r+g2);
-                gc.strokeArc(+g2-d, -d/2 + yoff, d, d, 0, +angle, ArcType.OPEN);  //RH
+                pen.strokeArc(+g2-d, -d/2 + yoff, d, d, 0, +angle, ArcType.OPEN);  //RH
                 d = 2*(r-g2);
-                gc.strokeArc(-g2-d, -d/2 + yoff, d, d, 0, +angle, ArcType.OPEN);  //RH
+                pen.strokeArc(-g2-d, -d/2 + yoff, d, d, 0, +angle, ArcType.OPEN);  //RH
             }
 
             // rail gap
             double gap = scale.railWidth() / 1.5;
-            gc.setStroke(BALLAST_COLOR);
-            gc.setLineWidth(scale.railWidth() / 2);
-            gc.strokeLine(-g2+gap, -getHeight()/2, -g2+gap, getHeight()/2);
-            gc.strokeLine(+g2-gap, -getHeight()/2, +g2-gap, getHeight()/2);
+            pen.setStroke(BALLAST_COLOR);
+            pen.setLineWidth(scale.railWidth() / 2);
+            pen.strokeLine(-g2+gap, -getHeight()/2, -g2+gap, getHeight()/2);
+            pen.strokeLine(+g2-gap, -getHeight()/2, +g2-gap, getHeight()/2);
             
             if (hand.right()) {
                 d = 2*(r+g2);
-                gc.strokeArc(-g2+gap, -d/2 + yoff, d, d, 180, -angle, ArcType.OPEN);  //RH
+                pen.strokeArc(-g2+gap, -d/2 + yoff, d, d, 180, -angle, ArcType.OPEN);  //RH
                 d = 2*(r-g2);
-                gc.strokeArc(+g2-gap, -d/2 + yoff, d, d, 180, -angle, ArcType.OPEN);  //RH
+                pen.strokeArc(+g2-gap, -d/2 + yoff, d, d, 180, -angle, ArcType.OPEN);  //RH
             }
             if (hand.left()) {
                 //LH rails
                 d = 2*(r+g2);
-                gc.strokeArc(+g2-d-gap, -d/2 + yoff, d, d, 0, +angle, ArcType.OPEN);  //RH
+                pen.strokeArc(+g2-d-gap, -d/2 + yoff, d, d, 0, +angle, ArcType.OPEN);  //RH
                 d = 2*(r-g2);
-                gc.strokeArc(-g2-d+gap, -d/2 + yoff, d, d, 0, +angle, ArcType.OPEN);  //RH
+                pen.strokeArc(-g2-d+gap, -d/2 + yoff, d, d, 0, +angle, ArcType.OPEN);  //RH
             }
             
 
-            drawIndicators(gc, color);
+            drawIndicators(pen, color);
         }
     }
     
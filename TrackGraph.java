@@ -0,0 +1,237 @@
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Which pieces of track are joined to which, kept up to date as pieces
+ * come and go rather than worked out again from the whole board.  Each
+ * piece is a node, and two connections at the same spot facing each
+ * other are an edge.  Connected pieces are grouped with union-find, so
+ * joining is nearly free; a piece leaving a group relabels just that
+ * group, since union-find can't split one.
+ */
+public class TrackGraph
+{
+    //how close two connections must be to be joined, in board pixels and degrees
+    private static final double MATE_DISTANCE = 1.0;
+    private static final double MATE_ANGLE = 1.0;
+
+    private static final class Node {
+	final Point point;
+	Node parent = this;    //null while its group is being relabeled
+	int size = 1;          //for roots
+
+	Node(Point point) {
+	    this.point = point;
+	}
+    }
+
+    private final JointHash joints;
+    private final Map<GlobalConnection, GlobalConnection> mates = new HashMap<>();
+    private final Map<Point, Node> nodes = new HashMap<>();
+    private int components = 0;
+    private final List<GlobalConnection> nearJoints = new ArrayList<>();
+    private final List<Consumer<Point>> watchers = new ArrayList<>();
+
+    /** Finds mates through joints, which must already hold each piece added. */
+    public TrackGraph(JointHash joints) {
+	this.joints = joints;
+    }
+
+    public void clear() {
+	mates.clear();
+	nodes.clear();
+	components = 0;
+	changed(null);
+    }
+
+    /**
+     * Tell w about each piece that's joined or parted from another, or
+     * that comes or goes; null means every piece has gone.
+     */
+    public void addWatcher(Consumer<Point> w) {
+	watchers.add(w);
+    }
+
+    private void changed(Point p) {
+	for (Consumer<Point> w : watchers) w.accept(p);
+    }
+
+    public boolean contains(Point p) {
+	return nodes.containsKey(p);
+    }
+
+    /** Add a placed piece and join it to the pieces it meets. */
+    public void add(Point p) {
+	if (p.floating || contains(p)) return;
+
+	Node node = new Node(p);
+	nodes.put(p, node);
+	++components;
+	changed(p);
+	if (p.connections == null) return;
+
+	p.placeConnections();
+	for (GlobalConnection c : p.connections) {
+	    for (GlobalConnection o : joints.near(c.x, c.y, MATE_DISTANCE, nearJoints)) {
+		if (o.point != p && contains(o.point) && ! mates.containsKey(o) && mated(c, o)) {
+		    mates.put(c, o);
+		    mates.put(o, c);
+		    union(node, nodes.get(o.point));
+		    changed(o.point);
+		    break;
+		}
+	    }
+	}
+    }
+
+    /** Take a piece out, splitting its group if it held it together. */
+    public void remove(Point p) {
+	if (nodes.remove(p) == null) return;
+
+	List<Point> neighbors = neighbors(p, new ArrayList<>());
+	changed(p);
+	for (Point n : neighbors) changed(n);
+	if (neighbors.isEmpty()) {
+	    --components;
+	    return;
+	}
+
+	--components;
+	for (GlobalConnection c : p.connections) {
+	    GlobalConnection o = mates.remove(c);
+	    if (o != null) mates.remove(o);
+	}
+
+	//unlabel what's left of the group, then label each part that's still joined
+	List<Node> members = new ArrayList<>();
+	List<Point> next = new ArrayList<>();
+	Deque<Node> queue = new ArrayDeque<>();
+	for (Point n : neighbors) {
+	    Node m = nodes.get(n);
+	    if (m.parent != null) {
+		m.parent = null;
+		queue.add(m);
+	    }
+	}
+	while (! queue.isEmpty()) {
+	    Node q = queue.poll();
+	    members.add(q);
+	    for (Point n : neighbors(q.point, next)) {
+		Node m = nodes.get(n);
+		if (m.parent != null) {
+		    m.parent = null;
+		    queue.add(m);
+		}
+	    }
+	}
+	for (Node m : members) {
+	    if (m.parent == null) label(m);
+	}
+    }
+
+    /** Call after a piece has been moved or rotated, or floated. */
+    public void update(Point p) {
+	remove(p);
+	add(p);
+    }
+
+    /** The connection joined to c, or null if c is an open end. */
+    public GlobalConnection mateOf(GlobalConnection c) {
+	return mates.get(c);
+    }
+
+    /** Replace the contents of out with the pieces joined to p. */
+    public List<Point> neighbors(Point p, List<Point> out) {
+	out.clear();
+	if (p.connections == null) return out;
+	for (GlobalConnection c : p.connections) {
+	    GlobalConnection o = mates.get(c);
+	    if (o != null) out.add(o.point);
+	}
+	return out;
+    }
+
+    /** A piece standing for p's whole group, or null if p isn't in the graph. */
+    public Point find(Point p) {
+	Node node = nodes.get(p);
+	return node == null ? null : find(node).point;
+    }
+
+    public boolean connected(Point a, Point b) {
+	Point ra = find(a);
+	return ra != null && ra == find(b);
+    }
+
+    /** How many pieces are in p's group. */
+    public int componentSize(Point p) {
+	Node node = nodes.get(p);
+	return node == null ? 0 : find(node).size;
+    }
+
+    /** How many separate groups of pieces there are. */
+    public int componentCount() {
+	return components;
+    }
+
+    /** How many joints join two pieces. */
+    public int edgeCount() {
+	return mates.size() / 2;
+    }
+
+    private static Node find(Node node) {
+	//path halving
+	while (node.parent != node) {
+	    node.parent = node.parent.parent;
+	    node = node.parent;
+	}
+	return node;
+    }
+
+    private void union(Node a, Node b) {
+	Node ra = find(a), rb = find(b);
+	if (ra == rb) return;
+	if (ra.size < rb.size) {
+	    Node t = ra;
+	    ra = rb;
+	    rb = t;
+	}
+	rb.parent = ra;
+	ra.size += rb.size;
+	--components;
+    }
+
+    //make root the root of everything reachable from it that's unlabeled
+    private void label(Node root) {
+	int n = 0;
+	Deque<Node> queue = new ArrayDeque<>();
+	List<Point> next = new ArrayList<>();
+	root.parent = root;
+	queue.add(root);
+	while (! queue.isEmpty()) {
+	    Node q = queue.poll();
+	    ++n;
+	    for (Point p : neighbors(q.point, next)) {
+		Node m = nodes.get(p);
+		if (m.parent == null) {
+		    m.parent = root;
+		    queue.add(m);
+		}
+	    }
+	}
+	root.size = n;
+	++components;
+    }
+
+    private static boolean mated(GlobalConnection a, GlobalConnection b) {
+	double dx = a.x - b.x, dy = a.y - b.y;
+	if (dx*dx + dy*dy > MATE_DISTANCE*MATE_DISTANCE) return false;
+	double turn = (a.point.angle + a.connection.angle) - (b.point.angle + b.connection.angle);
+	double off = Math.abs(Math.IEEEremainder(turn - 180, 360));
+	return off < MATE_ANGLE;
+    }
+}
@@ -0,0 +1,282 @@
+import javafx.animation.AnimationTimer;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Runs trains around the joined track, to try out how a layout
+ * operates.  The trains move in fixed steps on their own thread, over a
+ * copy of the track made on the application thread whenever the track
+ * graph changes, so the board is never touched from two threads.  Each
+ * step hands back just the trains' positions, and each frame the newest
+ * ones are drawn on the floating layer.  A train follows each turnout
+ * the way it's thrown, and backs up when it runs out of track.
+ */
+public class TrainSim
+{
+    /** Seconds of train time per step. */
+    public static final double STEP = 1.0 / 120;
+    public static final double DEFAULT_SPEED = 4.0;    //inches per second
+
+    //one piece of the copied track
+    private static final class Piece {
+	final Point point;
+	final Shape shape;
+	final double x, y, angle, cos, sin;
+	final Piece[] next;      //the piece past each connection, or null
+	final int[] nextEnter;   //and which of its connections that's by
+
+	Piece(Point p) {
+	    point = p;
+	    shape = p.shape;
+	    x = p.x;
+	    y = p.y;
+	    angle = p.angle;
+	    cos = Geometry.cos(angle);
+	    sin = Geometry.sin(angle);
+	    next = new Piece[p.connections.length];
+	    nextEnter = new int[p.connections.length];
+	}
+    }
+
+    private static final class Train {
+	Piece piece;
+	int from, to;
+	double distance;      //along the passage from from to to
+	final double speed;   //board pixels per second
+
+	Train(double speed) {
+	    this.speed = speed;
+	}
+    }
+
+    private static final class Launch {
+	final Point point;
+	final double speed;
+
+	Launch(Point point, double speed) {
+	    this.point = point;
+	    this.speed = speed;
+	}
+    }
+
+    private final BoardModel model;
+
+    //handed from the application thread to the train thread
+    private final AtomicReference<Map<Point, Piece>> newTrack = new AtomicReference<>();
+    private final Queue<Launch> launches = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean clearing = new AtomicBoolean();
+    private final Map<Point, Integer> switches = new ConcurrentHashMap<>();
+    //and back, x, y and angle for each train
+    private volatile double[] positions = new double[0];
+
+    //owned by the train thread
+    private final List<Train> trains = new ArrayList<>();
+    private Map<Point, Piece> track = new HashMap<>();
+    private final double[] local = new double[3];
+
+    private ScheduledExecutorService runner = null;
+    private boolean trackChanged = true;
+    private double[] shown = null;
+
+    private final AnimationTimer frames = new AnimationTimer() {
+	    @Override public void handle(long now) {
+		sendTrack();
+		double[] p = positions;
+		if (p != shown) {
+		    shown = p;
+		    model.showTrains(p);
+		}
+	    }
+	};
+
+    /** Must be made on the application thread, like all but the steps. */
+    public TrainSim(BoardModel model) {
+	this.model = model;
+	model.getGraph().addWatcher(p -> trackChanged = true);
+	//aligning moves all the track without rejoining any of it
+	model.addListener(new BoardModel.Listener() {
+		@Override public void added(Point p, int index) {}
+		@Override public void removed(Point p, int index) {}
+		@Override public void moved(Point p, int index, double fromX, double fromY, double fromAngle) {}
+		@Override public void floated(Point p, boolean floating) {}
+		@Override public void shifted(double dx, double dy) {
+		    trackChanged = true;
+		}
+	    });
+    }
+
+    public boolean isRunning() {
+	return runner != null;
+    }
+
+    public void start() {
+	if (runner != null) return;
+	runner = Executors.newSingleThreadScheduledExecutor(r -> {
+		Thread t = new Thread(r, "trains");
+		t.setDaemon(true);
+		return t;
+	    });
+	sendTrack();
+	runner.scheduleAtFixedRate(this::step, 0, Math.round(STEP * 1e6), TimeUnit.MICROSECONDS);
+	frames.start();
+    }
+
+    /** Stop the trains where they are. */
+    public void stop() {
+	if (runner == null) return;
+	runner.shutdownNow();
+	runner = null;
+	frames.stop();
+    }
+
+    /** Put a train on p, which sets off the next time the trains run. */
+    public void addTrain(Point p) {
+	addTrain(p, DEFAULT_SPEED * Length.ppi);
+    }
+
+    public void addTrain(Point p, double speed) {
+	//so the train thread has p before it sees the train
+	sendTrack();
+	launches.add(new Launch(p, speed));
+    }
+
+    public void clearTrains() {
+	clearing.set(true);
+	launches.clear();
+	positions = new double[0];
+	if (! isRunning()) model.showTrains(null);
+    }
+
+    /** x, y and angle for each train, as of the last step. */
+    public double[] getPositions() {
+	return positions;
+    }
+
+    /** Send trains coming in p's common end out the next way instead. */
+    public void throwSwitch(Point p) {
+	switches.merge(p, 1, Integer::sum);
+    }
+
+    //each frame, or a test's step
+    void sendTrack() {
+	if (trackChanged) {
+	    trackChanged = false;
+	    newTrack.set(copyTrack());
+	}
+    }
+
+    private Map<Point, Piece> copyTrack() {
+	TrackGraph graph = model.getGraph();
+	Map<Point, Piece> pieces = new HashMap<>();
+	//switches stay thrown while their pieces are on the board, even lifted
+	Set<Point> thrown = new HashSet<>();
+	for (Point p : model.shapes) {
+	    if (p.connections != null && graph.contains(p)) pieces.put(p, new Piece(p));
+	    if (switches.containsKey(p)) thrown.add(p);
+	}
+	switches.keySet().retainAll(thrown);
+	for (Piece piece : pieces.values()) {
+	    GlobalConnection[] connections = piece.point.connections;
+	    for (int i=0; i<connections.length; ++i) {
+		GlobalConnection mate = graph.mateOf(connections[i]);
+		if (mate == null) continue;
+		piece.next[i] = pieces.get(mate.point);
+		piece.nextEnter[i] = mate.point.indexOf(mate);
+	    }
+	}
+	return pieces;
+    }
+
+    //on the train thread, or a test's with the trains stopped
+    void step() {
+	Map<Point, Piece> t = newTrack.getAndSet(null);
+	if (t != null) retrack(t);
+	if (clearing.getAndSet(false)) trains.clear();
+	for (Launch l; (l = launches.poll()) != null; ) launch(l);
+
+	double[] out = new double[trains.size() * 3];
+	for (int i=0; i<trains.size(); ++i) {
+	    Train train = trains.get(i);
+	    advance(train, train.speed * STEP);
+	    Piece piece = train.piece;
+	    piece.shape.travel(train.from, train.to, train.distance, local);
+	    out[3*i]   = piece.x + Geometry.rotateX(local[0], local[1], piece.cos, piece.sin);
+	    out[3*i+1] = piece.y + Geometry.rotateY(local[0], local[1], piece.cos, piece.sin);
+	    out[3*i+2] = piece.angle + local[2];
+	}
+	if (! clearing.get()) positions = out;
+    }
+
+    //trains on pieces that have gone go with them
+    private void retrack(Map<Point, Piece> t) {
+	track = t;
+	trains.removeIf(train -> (train.piece = track.get(train.piece.point)) == null);
+    }
+
+    private void launch(Launch l) {
+	Piece piece = track.get(l.point);
+	if (piece == null) return;
+	for (int from=0; from<piece.next.length; ++from) {
+	    int to = exit(piece, from);
+	    if (to >= 0) {
+		Train train = new Train(l.speed);
+		train.piece = piece;
+		train.from = from;
+		train.to = to;
+		train.distance = piece.shape.passage(from, to) / 2;
+		trains.add(train);
+		return;
+	    }
+	}
+    }
+
+    private void advance(Train train, double d) {
+	d += train.distance;
+	for (double length; d >= (length = train.piece.shape.passage(train.from, train.to)); ) {
+	    d -= length;
+	    Piece next = train.piece.next[train.to];
+	    int in = next == null ? -1 : train.piece.nextEnter[train.to];
+	    int out = next == null ? -1 : exit(next, in);
+	    if (out < 0) {
+		//end of the line, or a way it can't go; back up
+		int from = train.from;
+		train.from = train.to;
+		train.to = from;
+	    } else {
+		train.piece = next;
+		train.from = in;
+		train.to = out;
+	    }
+	}
+	train.distance = d;
+    }
+
+    //the way out of a piece for a train in by in, as its switch is thrown; -1 for none
+    private int exit(Piece piece, int in) {
+	int ways = 0;
+	for (int i=0; i<piece.next.length; ++i) {
+	    if (piece.shape.passage(in, i) >= 0) ++ways;
+	}
+	if (ways == 0) return -1;
+
+	Integer thrown = switches.get(piece.point);
+	int way = thrown == null ? 0 : thrown % ways;
+	for (int i=0; i<piece.next.length; ++i) {
+	    if (piece.shape.passage(in, i) >= 0 && way-- == 0) return i;
+	}
+	return -1;
+    }
+}
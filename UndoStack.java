@@ -0,0 +1,192 @@
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Undo and redo for the edits made to a board, recorded from the
+ * model's change events.  A drag reaches the model as many small moves
+ * but is reported once, from where the piece was lifted to where it
+ * snapped, so each gesture is one compact move here.  Only the latest
+ * edits are kept, up to a limit.
+ */
+public class UndoStack implements BoardModel.Listener
+{
+    private interface Command {
+	void undo(BoardModel model);
+	void redo(BoardModel model);
+    }
+
+    private static final class Add implements Command {
+	final Point p;
+	final int index;
+	Add(Point p, int index) {
+	    this.p = p;
+	    this.index = index;
+	}
+	public void undo(BoardModel model) { model.eraseShape(p); }
+	public void redo(BoardModel model) { model.restoreShape(p, index); }
+    }
+
+    private static final class Remove implements Command {
+	final Point p;
+	final int index;
+	Remove(Point p, int index) {
+	    this.p = p;
+	    this.index = index;
+	}
+	public void undo(BoardModel model) { model.restoreShape(p, index); }
+	public void redo(BoardModel model) { model.eraseShape(p); }
+    }
+
+    private static final class Move implements Command {
+	final Point p;
+	final double fromX, fromY, fromAngle;
+	final double toX, toY, toAngle;
+	Move(Point p, double fromX, double fromY, double fromAngle) {
+	    this.p = p;
+	    this.fromX = fromX;
+	    this.fromY = fromY;
+	    this.fromAngle = fromAngle;
+	    toX = p.x;
+	    toY = p.y;
+	    toAngle = p.angle;
+	}
+	public void undo(BoardModel model) { model.placeShape(p, fromX, fromY, fromAngle); }
+	public void redo(BoardModel model) { model.placeShape(p, toX, toY, toAngle); }
+    }
+
+    private static final class Shift implements Command {
+	final double dx, dy;
+	Shift(double dx, double dy) {
+	    this.dx = dx;
+	    this.dy = dy;
+	}
+	public void undo(BoardModel model) { model.moveAll(-dx, -dy); }
+	public void redo(BoardModel model) { model.moveAll(dx, dy); }
+    }
+
+    private static final class FloatCommand implements Command {
+	final Point p;
+	final boolean floating;
+	FloatCommand(Point p, boolean floating) {
+	    this.p = p;
+	    this.floating = floating;
+	}
+	public void undo(BoardModel model) { model.floatShape(p, !floating); }
+	public void redo(BoardModel model) { model.floatShape(p, floating); }
+    }
+
+    private final BoardModel model;
+    private final Deque<Command> done = new ArrayDeque<>();
+    private final Deque<Command> undone = new ArrayDeque<>();
+    private int limit;
+    private boolean applying = false;
+    private Runnable onChange = null;
+
+    /** Keep up to limit edits, in a stack listening to model. */
+    public UndoStack(BoardModel model, int limit) {
+	this.model = model;
+	this.limit = limit;
+	model.addListener(this);
+    }
+
+    public int getLimit() {
+	return limit;
+    }
+
+    /** Change how many edits are kept, dropping the oldest if need be. */
+    public void setLimit(int limit) {
+	this.limit = limit;
+	trim();
+	changed();
+    }
+
+    /** Called whenever there's something new, or nothing more, to undo or redo. */
+    public void setOnChange(Runnable onChange) {
+	this.onChange = onChange;
+    }
+
+    public boolean canUndo() {
+	return ! done.isEmpty();
+    }
+
+    public boolean canRedo() {
+	return ! undone.isEmpty();
+    }
+
+    public int size() {
+	return done.size() + undone.size();
+    }
+
+    /** Forget all edits, as when a new board is started or loaded. */
+    public void clear() {
+	done.clear();
+	undone.clear();
+	changed();
+    }
+
+    public void undo() {
+	if (done.isEmpty() || model.isHolding()) return;
+	Command c = done.pop();
+	apply(c, false);
+	undone.push(c);
+	changed();
+    }
+
+    public void redo() {
+	if (undone.isEmpty() || model.isHolding()) return;
+	Command c = undone.pop();
+	apply(c, true);
+	done.push(c);
+	changed();
+    }
+
+    //the model reports the edit back to us; don't record it again
+    private void apply(Command c, boolean redo) {
+	applying = true;
+	try {
+	    if (redo) {
+		c.redo(model);
+	    } else {
+		c.undo(model);
+	    }
+	} finally {
+	    applying = false;
+	}
+    }
+
+    private void record(Command c) {
+	if (applying) return;
+	done.push(c);
+	undone.clear();
+	trim();
+	changed();
+    }
+
+    private void trim() {
+	while (done.size() > limit) done.removeLast();
+    }
+
+    private void changed() {
+	if (onChange != null) onChange.run();
+    }
+
+    @Override public void added(Point p, int index) {
+	record(new Add(p, index));
+    }
+
+    @Override public void removed(Point p, int index) {
+	record(new Remove(p, index));
+    }
+
+    @Override public void moved(Point p, int index, double fromX, double fromY, double fromAngle) {
+	record(new Move(p, fromX, fromY, fromAngle));
+    }
+
+    @Override public void shifted(double dx, double dy) {
+	record(new Shift(dx, dy));
+    }
+
+    @Override public void floated(Point p, boolean floating) {
+	record(new FloatCommand(p, floating));
+    }
+}
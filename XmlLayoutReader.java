@@ -0,0 +1,139 @@
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+/**
+ * Reads a layout saved by BoardController a few places at a time with
+ * StAX, so a large file never has to be held in memory as a whole.
+ * The board size is read when the file is opened.
+ */
+public class XmlLayoutReader implements LayoutReader
+{
+    private final CountingStream in;
+    private final XMLStreamReader xml;
+    private final long length;
+
+    private double dpi = Length.ppi;
+    private double width = 0;
+    private double height = 0;
+    private boolean done = false;
+
+    private static class CountingStream extends FilterInputStream {
+	long count = 0;
+
+	CountingStream(InputStream in) {
+	    super(in);
+	}
+
+	@Override public int read() throws IOException {
+	    int b = super.read();
+	    if (b >= 0) ++count;
+	    return b;
+	}
+
+	@Override public int read(byte[] b, int off, int len) throws IOException {
+	    int n = super.read(b, off, len);
+	    if (n > 0) count += n;
+	    return n;
+	}
+    }
+
+    public XmlLayoutReader(File file) throws IOException {
+	length = file.length();
+	in = new CountingStream(new BufferedInputStream(new FileInputStream(file)));
+	try {
+	    XMLInputFactory factory = XMLInputFactory.newInstance();
+	    factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+	    xml = factory.createXMLStreamReader(in);
+	    xml.nextTag();
+	    dpi = attribute("dpi", dpi);
+	    width = attribute("width", width);
+	    height = attribute("height", height);
+	} catch (XMLStreamException | NumberFormatException e) {
+	    in.close();
+	    throw new IOException(file + ": " + e.getMessage(), e);
+	}
+    }
+
+    public double getDpi()    { return dpi;    }
+    public double getWidth()  { return width;  }
+    public double getHeight() { return height; }
+
+    /** Fraction of the file read so far. */
+    public double progress() {
+	return length > 0 ? Math.min(1.0, (double)in.count / length) : 1.0;
+    }
+
+    /**
+     * Add up to max more places to out.  Returns how many were added,
+     * which is 0 once the whole file has been read.
+     */
+    public int read(List<BoardController.SavedPlace> out, int max) throws IOException {
+	int n = 0;
+	try {
+	    while (n < max && ! done) {
+		int event = xml.next();
+		if (event == XMLStreamConstants.START_ELEMENT) {
+		    if (xml.getLocalName().equals("tracks")) {
+			out.add(readPlace());
+			++n;
+		    } else {
+			skip();
+		    }
+		} else if (event == XMLStreamConstants.END_DOCUMENT) {
+		    done = true;
+		}
+	    }
+	} catch (XMLStreamException | NumberFormatException e) {
+	    throw new IOException(e.getMessage(), e);
+	}
+	return n;
+    }
+
+    private BoardController.SavedPlace readPlace() throws XMLStreamException {
+	BoardController.SavedPlace sp = new BoardController.SavedPlace();
+	while (xml.nextTag() == XMLStreamConstants.START_ELEMENT) {
+	    switch (xml.getLocalName()) {
+	    case "x":     sp.x = Double.parseDouble(xml.getElementText().trim());     break;
+	    case "y":     sp.y = Double.parseDouble(xml.getElementText().trim());     break;
+	    case "angle": sp.angle = Double.parseDouble(xml.getElementText().trim()); break;
+	    case "shape": sp.shape = xml.getElementText().trim();                     break;
+	    default:      skip();
+	    }
+	}
+	return sp;
+    }
+
+    //skip the element just started, and everything in it
+    private void skip() throws XMLStreamException {
+	for (int depth = 1; depth > 0; ) {
+	    int event = xml.next();
+	    if (event == XMLStreamConstants.START_ELEMENT) ++depth;
+	    else if (event == XMLStreamConstants.END_ELEMENT) --depth;
+	}
+    }
+
+    private double attribute(String name, double value) {
+	String s = xml.getAttributeValue(null, name);
+	return s == null ? value : Double.parseDouble(s);
+    }
+
+    @Override public void close() throws IOException {
+	try {
+	    xml.close();
+	} catch (XMLStreamException e) {
+	    throw new IOException(e.getMessage(), e);
+	} finally {
+	    in.close();
+	}
+    }
+}
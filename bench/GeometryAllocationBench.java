@@ -0,0 +1,100 @@
+import java.lang.management.ManagementFactory;
+
+import javafx.geometry.Point2D;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.transform.Rotate;
+
+/**
+ * Measures the bytes allocated per call on the hit test, drag and snap
+ * geometry paths, next to the Rotate/Point2D way they used to be done.
+ *
+ *   java -cp .:bench GeometryAllocationBench
+ */
+public class GeometryAllocationBench
+{
+    private static final int WARMUP = 200_000;
+    private static final int OPS = 1_000_000;
+
+    private static final com.sun.management.ThreadMXBean threads
+	= (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+
+    private static double sink;
+
+    interface Op {
+	void run(int i);
+    }
+
+    private static void measure(String name, Op op) {
+	for (int i=0; i<WARMUP; ++i) op.run(i);
+
+	long tid = Thread.currentThread().getId();
+	long before = threads.getThreadAllocatedBytes(tid);
+	long start = System.nanoTime();
+	for (int i=0; i<OPS; ++i) op.run(i);
+	long ns = System.nanoTime() - start;
+	long bytes = threads.getThreadAllocatedBytes(tid) - before;
+
+	System.out.printf("%-24s %10.2f bytes/op %10.1f ns/op%n",
+			  name, (double)bytes/OPS, (double)ns/OPS);
+    }
+
+    public static void main(String[] args) {
+	ShapeBox box = new ShapeBox();
+	Shape straight = null;
+	for (Shape s : box.getShapes()) {
+	    if (s.getId().equals("straight")) straight = s;
+	}
+
+	//a 100x100 field of rotated straights
+	BoardModel model = new BoardModel(new Canvas(10,10).getGraphicsContext2D(),
+					  new Canvas(10,10).getGraphicsContext2D());
+	Point[] points = new Point[10_000];
+	for (int i=0; i<points.length; ++i) {
+	    Point p = new Point((i%100) * 80, (i/100) * 80, straight);
+	    p.angle = (i * 15) % 360;
+	    points[i] = p;
+	    model.addPoint(p);
+	}
+	final Point a = points[0];
+	final Point b = points[1];
+	final JointHash joints = new JointHash();
+	for (Point p : points) joints.add(p);
+	final java.util.List<GlobalConnection> near = new java.util.ArrayList<>();
+
+	measure("legacy Rotate width", i -> {
+		Point2D r = new Rotate(a.angle + (i & 1))
+		    .transform(a.shape.getWidth()/2, a.shape.getHeight()/2);
+		Point2D l = new Rotate(a.angle + (i & 1))
+		    .transform(-a.shape.getWidth()/2, a.shape.getHeight()/2);
+		sink += Math.max(Math.abs(l.getX()), Math.abs(r.getX()));
+	    });
+	measure("Point.getWidth", i -> sink += points[i % points.length].getWidth());
+	measure("Point.covers", i -> sink += a.covers(i % 50, 3) ? 1 : 0);
+	measure("Point.overlaps", i -> sink += points[i % points.length].overlaps(b) ? 1 : 0);
+	measure("rotate while dragging", i -> {
+		a.angle = (i & 1) * 45;
+		a.addXy(1, 0);
+		sink += a.getWidth();
+		a.placeConnections();
+	    });
+	measure("JointHash.update", i -> {
+		Point p = points[i % points.length];
+		p.addXy((i & 1) == 0 ? 40 : -40, 0);
+		joints.update(p);
+	    });
+	measure("JointHash.near", i -> {
+		Point p = points[i % points.length];
+		sink += joints.near(p.x, p.y, joints.maxRadius(), near).size();
+	    });
+	measure("snap rotate", i -> {
+		b.rotateAbout(i % 360, a.x, a.y);
+		sink += b.x;
+	    });
+	measure("BoardModel.findPointAt", i -> {
+		Point p = model.findPointAt((i % 100) * 80 + 1, ((i / 100) % 100) * 80 + 1);
+		sink += p == null ? 0 : p.x;
+	    });
+
+	System.out.println(sink == 42 ? "" : "done");
+    }
+}
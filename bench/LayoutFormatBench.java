@@ -0,0 +1,83 @@
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import javax.xml.bind.JAXB;
+
+/**
+ * Times saving and opening a large layout as XML and as a binary
+ * layout.  Opening reads every place, the way the loader does.
+ *
+ *   java -cp .:bench LayoutFormatBench [places]
+ */
+public class LayoutFormatBench
+{
+    private static final int RUNS = 5;
+    private static long sink;
+
+    interface Op {
+	void run() throws IOException;
+    }
+
+    private static void measure(String name, Op op) throws IOException {
+	long best = Long.MAX_VALUE;
+	for (int i=0; i<RUNS; ++i) {
+	    long start = System.nanoTime();
+	    op.run();
+	    best = Math.min(best, System.nanoTime() - start);
+	}
+	System.out.printf("%-20s %10.1f ms%n", name, best / 1e6);
+    }
+
+    private static long readAll(LayoutReader reader) throws IOException {
+	List<BoardController.SavedPlace> places = new ArrayList<>();
+	long n = 0;
+	try (LayoutReader r = reader) {
+	    while (r.read(places, 500) > 0) {
+		n += places.size();
+		places.clear();
+	    }
+	}
+	return n;
+    }
+
+    public static void main(String[] args) throws IOException {
+	int count = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+
+	List<Shape> shapes = new ArrayList<>();
+	for (Shape s : new ShapeBox().getShapes()) shapes.add(s);
+	Random random = new Random(1);
+	List<Point> points = new ArrayList<>(count);
+	for (int i=0; i<count; ++i) {
+	    Point p = new Point(random.nextDouble() * 10000, random.nextDouble() * 10000,
+				shapes.get(random.nextInt(shapes.size())));
+	    p.angle = random.nextInt(24) * 15;
+	    points.add(p);
+	}
+
+	File xml = File.createTempFile("bench", ".xml");
+	File bin = File.createTempFile("bench", BinaryLayout.EXTENSION);
+	xml.deleteOnExit();
+	bin.deleteOnExit();
+
+	System.out.printf("%d places%n", count);
+	measure("snapshot", () -> sink += LayoutSnapshot.of(Length.ppi, 400, 400, points).size());
+	LayoutSnapshot layout = LayoutSnapshot.of(Length.ppi, 400, 400, points);
+	measure("save xml", () -> {
+		BoardController.SavedBoard sb = new BoardController.SavedBoard();
+		sb.width = 400;
+		sb.height = 400;
+		sb.setAll(layout);
+		JAXB.marshal(sb, xml);
+	    });
+	measure("save binary", () -> BinaryLayout.write(bin, layout));
+	measure("open xml (jaxb)", () -> {
+		sink += JAXB.unmarshal(xml, BoardController.SavedBoard.class).tracks.size();
+	    });
+	measure("open xml (stax)", () -> sink += readAll(new XmlLayoutReader(xml)));
+	measure("open binary", () -> sink += readAll(new BinaryLayout.Reader(bin)));
+	System.out.printf("xml %d bytes, binary %d bytes%n", xml.length(), bin.length());
+    }
+}
@@ -0,0 +1,173 @@
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.paint.Color;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.function.IntUnaryOperator;
+
+import javax.xml.bind.JAXB;
+
+/**
+ * The board operations the JMH benchmarks time, on a synthetic layout.
+ * JMH won't take benchmarks in the default package, and a class in a
+ * package can't see the board's classes, so the benchmarks get these
+ * through reflection once and then call them through plain JDK
+ * interfaces.  Each operator takes an int picking one of SPOTS places
+ * on the board, and returns something so the work isn't optimized away.
+ *
+ * With no pulses to draw them, a canvas keeps every drawing command it's
+ * given until it's cleared all over, so each workload clears its
+ * canvases once every SPOTS calls.
+ */
+public class Workloads
+{
+    public static final int SPOTS = 1024;
+
+    //about this many board pixels per piece, so the layout is as dense at any size
+    private static final double AREA_PER_PIECE = 80 * 80;
+    private static final double CANVAS_WIDTH = 1600;
+    private static final double CANVAS_HEIGHT = 1200;
+
+    private final BoardModel model;
+    private final GraphicsContext fixed;
+    private final GraphicsContext floating;
+    private final List<Shape> shapes = new ArrayList<>();
+    //x,y of places over pieces, and of open ends to drop pieces next to
+    private final double[] spots = new double[SPOTS * 2];
+    private final double[] ends = new double[SPOTS * 2];
+    private final Shape straight;
+
+    /** A board of the given number of pieces, the same each time. */
+    public Workloads(int pieces) {
+	for (Shape s : new ShapeBox().getShapes()) shapes.add(s);
+	straight = find("straight");
+
+	fixed = new Canvas(CANVAS_WIDTH, CANVAS_HEIGHT).getGraphicsContext2D();
+	floating = new Canvas(CANVAS_WIDTH, CANVAS_HEIGHT).getGraphicsContext2D();
+	model = new BoardModel(fixed, floating);
+	Random random = new Random(1);
+	double side = Math.sqrt(pieces * AREA_PER_PIECE);
+	for (int i=0; i<pieces; ++i) {
+	    Point p = new Point(random.nextDouble() * side, random.nextDouble() * side,
+				shapes.get(random.nextInt(shapes.size())));
+	    p.angle = random.nextInt(24) * 15;
+	    model.addPoint(p);
+	}
+
+	for (int i=0; i<SPOTS; ++i) {
+	    Point p = model.shapes.get(random.nextInt(pieces));
+	    spots[2*i] = p.x;
+	    spots[2*i+1] = p.y;
+	    do {
+		p = model.shapes.get(random.nextInt(pieces));
+	    } while (p.connections == null);
+	    GlobalConnection c = p.connections[random.nextInt(p.connections.length)];
+	    ends[2*i] = c.x;
+	    ends[2*i+1] = c.y;
+	}
+    }
+
+    private Shape find(String id) {
+	for (Shape s : shapes) {
+	    if (s.getId().equals(id)) return s;
+	}
+	throw new IllegalArgumentException("no shape " + id);
+    }
+
+    private void flush(int i) {
+	if (i == 0) {
+	    fixed.clearRect(0, 0, CANVAS_WIDTH, CANVAS_HEIGHT);
+	    floating.clearRect(0, 0, CANVAS_WIDTH, CANVAS_HEIGHT);
+	}
+    }
+
+    /** Hit test a spot; 1 if there's a piece there. */
+    public IntUnaryOperator findPointAt() {
+	return i -> model.findPointAt(spots[2*i], spots[2*i+1]) == null ? 0 : 1;
+    }
+
+    /**
+     * Drop a straight a little off an open end, so it snaps on, then
+     * erase it again to leave the board as it was.
+     */
+    public IntUnaryOperator addShape() {
+	return i -> {
+	    flush(i);
+	    model.addShape(ends[2*i] + 3, ends[2*i+1] + 3, straight);
+	    int n = model.shapes.size();
+	    model.eraseShape(model.shapes.get(n - 1));
+	    return n;
+	};
+    }
+
+    /** Pick up the piece at a spot, nudge it, and let it go so it snaps. */
+    public IntUnaryOperator releaseShape() {
+	return i -> {
+	    flush(i);
+	    model.liftShape(spots[2*i], spots[2*i+1]);
+	    model.moveShape(2, 2);
+	    model.releaseShape();
+	    return model.shapes.size();
+	};
+    }
+
+    /**
+     * Lift the piece at the first spot and return what moves it, a
+     * pixel one way on even calls and back on odd ones.
+     */
+    public IntUnaryOperator drag() {
+	model.liftShape(spots[0], spots[1]);
+	return i -> {
+	    flush(i);
+	    double d = (i & 1) == 0 ? 1 : -1;
+	    model.moveShape(d, d);
+	    return i;
+	};
+    }
+
+    /** Redraw a window's worth of the board, with no tile or sprite cache. */
+    public Runnable redraw() {
+	return model::redraw;
+    }
+
+    /** Draw a piece in full detail, as the board does close up. */
+    public static Runnable draw(String id) {
+	Shape shape = null;
+	for (Shape s : new ShapeBox().getShapes()) {
+	    if (s.getId().equals(id)) shape = s;
+	}
+	if (shape == null) throw new IllegalArgumentException("no shape " + id);
+
+	GraphicsContext gc = new Canvas(400, 400).getGraphicsContext2D();
+	gc.translate(200, 200);
+	Pen pen = new FxPen(gc, Track.Detail.FULL);
+	Shape s = shape;
+	int[] calls = { 0 };
+	return () -> {
+	    if (++calls[0] % SPOTS == 0) gc.clearRect(-200, -200, 400, 400);
+	    s.draw(pen, Color.GREEN);
+	};
+    }
+
+    /** Save the layout as XML with JAXB; returns the file's length. */
+    public Callable<Object> saveXml(File file) {
+	LayoutSnapshot layout = LayoutSnapshot.of(Length.ppi, 400, 400, model.shapes);
+	return () -> {
+	    BoardController.SavedBoard sb = new BoardController.SavedBoard();
+	    sb.width = 400;
+	    sb.height = 400;
+	    sb.setAll(layout);
+	    JAXB.marshal(sb, file);
+	    return file.length();
+	};
+    }
+
+    /** Read back a layout saved as XML with JAXB; returns how many places it has. */
+    public static Callable<Object> loadXml(File file) {
+	return () -> JAXB.unmarshal(file, BoardController.SavedBoard.class).tracks.size();
+    }
+}
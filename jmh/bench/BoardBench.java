@@ -0,0 +1,83 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntUnaryOperator;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.BenchmarkParams;
+
+/** The editing paths of BoardModel, on layouts of each size. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BoardBench
+{
+    @Param({"1000", "10000", "100000"})
+    public int pieces;
+
+    private IntUnaryOperator op;
+    private Runnable redraw;
+    private int spot = 0;
+    private int spots;
+
+    @Setup
+    public void setUp(BenchmarkParams params) throws ReflectiveOperationException {
+	Object board = Fixtures.workloads(pieces);
+	spots = Fixtures.spots();
+	//each benchmark gets a board of its own, made ready for just that benchmark
+	String name = params.getBenchmark();
+	name = name.substring(name.lastIndexOf('.') + 1);
+	if (name.equals("redraw")) {
+	    redraw = Fixtures.call(board, "redraw");
+	} else {
+	    op = Fixtures.call(board, name);
+	}
+    }
+
+    private int next() {
+	int i = spot;
+	spot = (spot + 1) % spots;
+	return i;
+    }
+
+    @Benchmark
+    public int findPointAt() {
+	return op.applyAsInt(next());
+    }
+
+    /** Includes erasing it again. */
+    @Benchmark
+    public int addShape() {
+	return op.applyAsInt(next());
+    }
+
+    /** Includes the lift and the nudge before it. */
+    @Benchmark
+    public int releaseShape() {
+	return op.applyAsInt(next());
+    }
+
+    @Benchmark
+    public int drag() {
+	return op.applyAsInt(next());
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void redraw() {
+	redraw.run();
+    }
+}
@@ -0,0 +1,39 @@
+package bench;
+
+import java.lang.reflect.InvocationTargetException;
+
+/**
+ * Reaches the board's classes, which are in the default package, for the
+ * benchmarks; see Workloads.  Only used while setting up, never in a
+ * timed call.
+ */
+final class Fixtures
+{
+    private Fixtures() {}
+
+    static Object workloads(int pieces) throws ReflectiveOperationException {
+	return Class.forName("Workloads").getConstructor(int.class).newInstance(pieces);
+    }
+
+    /** How many places on the board each workload picks from. */
+    static int spots() throws ReflectiveOperationException {
+	return Class.forName("Workloads").getField("SPOTS").getInt(null);
+    }
+
+    /** Call a method of a Workloads, or a static one if target is the class name. */
+    @SuppressWarnings("unchecked")
+    static <T> T call(Object target, String method, Object... args)
+	throws ReflectiveOperationException {
+	Class<?> type = target instanceof String ? Class.forName((String)target) : target.getClass();
+	Class<?>[] types = new Class<?>[args.length];
+	for (int i=0; i<args.length; ++i) {
+	    types[i] = args[i] instanceof Integer ? int.class : args[i].getClass();
+	}
+	try {
+	    return (T)type.getMethod(method, types).invoke(target instanceof String ? null : target, args);
+	} catch (InvocationTargetException e) {
+	    if (e.getCause() instanceof RuntimeException) throw (RuntimeException)e.getCause();
+	    throw e;
+	}
+    }
+}
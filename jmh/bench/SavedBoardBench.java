@@ -0,0 +1,59 @@
+package bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Saving and opening a layout as XML through JAXB, the way the editor does. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class SavedBoardBench
+{
+    @Param({"1000", "10000", "100000"})
+    public int pieces;
+
+    private File file;
+    private Callable<Object> save;
+    private Callable<Object> load;
+
+    @Setup
+    public void setUp() throws Exception {
+	file = File.createTempFile("bench", ".xml");
+	save = Fixtures.call(Fixtures.workloads(pieces), "saveXml", file);
+	load = Fixtures.call("Workloads", "loadXml", file);
+	save.call();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+	file.delete();
+    }
+
+    @Benchmark
+    public Object save() throws Exception {
+	return save.call();
+    }
+
+    @Benchmark
+    public Object load() throws Exception {
+	return load.call();
+    }
+}
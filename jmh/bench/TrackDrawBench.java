@@ -0,0 +1,41 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Drawing one piece of each kind of track in full detail. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TrackDrawBench
+{
+    //a Straight, Curve, Cross, Road and each hand of Turnout from the ShapeBox
+    @Param({"straight", "curve", "x45", "road", "right", "turn"})
+    public String shape;
+
+    private Runnable draw;
+
+    @Setup
+    public void setUp() throws ReflectiveOperationException {
+	draw = Fixtures.call("Workloads", "draw", shape);
+    }
+
+    @Benchmark
+    public void draw() {
+	draw.run();
+    }
+}
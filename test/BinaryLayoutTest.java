@@ -0,0 +1,74 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+public class BinaryLayoutTest extends TestCase
+{
+    public void testRoundTrip() throws IOException {
+	File file = File.createTempFile("layout", BinaryLayout.EXTENSION);
+	file.deleteOnExit();
+
+	List<Point> points = new ArrayList<>();
+	for (int i=0; i<7; ++i) {
+	    Point p = new Point(i*10.5, 100-i, new TestShape());
+	    p.angle = i*15;
+	    points.add(p);
+	}
+	BinaryLayout.write(file, LayoutSnapshot.of(24, 48, 30, points));
+	assertTrue("detected", BinaryLayout.isBinary(file));
+
+	try (LayoutReader reader = LayoutReader.open(file)) {
+	    assertEquals("dpi", 24.0, reader.getDpi());
+	    assertEquals("width", 48.0, reader.getWidth());
+	    assertEquals("height", 30.0, reader.getHeight());
+
+	    List<BoardController.SavedPlace> places = new ArrayList<>();
+	    assertEquals("first batch", 4, reader.read(places, 4));
+	    assertEquals("rest", 3, reader.read(places, 4));
+	    assertEquals("at end", 0, reader.read(places, 4));
+	    assertEquals("all read", 1.0, reader.progress());
+
+	    for (int i=0; i<7; ++i) {
+		BoardController.SavedPlace sp = places.get(i);
+		assertEquals("x", i*10.5, sp.x);
+		assertEquals("y", 100.0-i, sp.y);
+		assertEquals("angle", i*15.0, sp.angle);
+		assertEquals("shape", "test", sp.shape);
+	    }
+	}
+    }
+
+    public void testBadCount() throws IOException {
+	File file = File.createTempFile("layout", BinaryLayout.EXTENSION);
+	file.deleteOnExit();
+	List<Point> points = new ArrayList<>();
+	points.add(new Point(1, 2, new TestShape()));
+	BinaryLayout.write(file, LayoutSnapshot.of(24, 48, 30, points));
+
+	//the dictionary's size, after magic, version, dpi, width and height
+	byte[] bytes = Files.readAllBytes(file.toPath());
+	bytes[32] = bytes[33] = bytes[34] = (byte)0xff;
+	bytes[35] = 0x7f;
+	Files.write(file.toPath(), bytes);
+	try {
+	    LayoutReader.open(file).close();
+	    fail("huge count read");
+	} catch (IOException e) {
+	    //expected
+	}
+    }
+
+    public void testXmlIsNotBinary() throws IOException {
+	File file = File.createTempFile("layout", ".xml");
+	file.deleteOnExit();
+	Files.write(file.toPath(), "<savedBoard width=\"4\"/>".getBytes("UTF-8"));
+	assertFalse("not binary", BinaryLayout.isBinary(file));
+	try (LayoutReader reader = LayoutReader.open(file)) {
+	    assertEquals("read as xml", 4.0, reader.getWidth());
+	}
+    }
+}
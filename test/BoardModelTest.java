@@ -7,32 +7,6 @@ import static junit.framework.Assert.assertNull;
 import static junit.framework.Assert.assertNotNull;
 import junit.framework.TestCase;
 
-class TestShape extends Shape 
-{
-    public TestShape() {
-	super("test", 10, 100);
-    }
-
-    public Color color;
-    public int nDraw = 0;
-    public int nErase = 0;
-    public GraphicsContext drawGc = null;
-    public GraphicsContext eraseGc = null;
-    
-    public void draw(GraphicsContext gc, Color color) {
-        ++nDraw;
-        this.color = color;
-	drawGc = gc;
-    }
-    
-    public void erase(GraphicsContext gc){
-        ++nErase;
-	eraseGc = gc;
-    }
-    
-}
-
-
 public class BoardModelTest extends TestCase
 {
     final Canvas canvas = new Canvas(250,250);
@@ -73,14 +47,13 @@ public class BoardModelTest extends TestCase
         bm.liftShape(100, 100);
         assertEquals("Called draw again", 2, ts.nDraw);
         assertEquals("Used Color", ts.color, Color.BLUE);
-	assertEquals("Erased on fixed", ts.eraseGc, gc);
 	assertEquals("Drew on float", ts.drawGc, fgc);
 	
         bm.releaseShape();
-	assertEquals("Erased on float", ts.eraseGc, fgc);
         assertEquals("Called draw again", 3, ts.nDraw);
         assertEquals("Changed Color", ts.color, Color.GREEN);
 	assertEquals("Drew on fixed", ts.drawGc, gc);
+	assertEquals("Layers are cleared by region", 0, ts.nErase);
     }
 
     public void testMove() {
@@ -88,7 +61,7 @@ public class BoardModelTest extends TestCase
         TestShape ts = new TestShape();
         bm.addShape(100, 100, ts);
         bm.liftShape(100, 100);
-        assertEquals("called erase", 1, ts.nErase);
+        assertEquals("called draw", 2, ts.nDraw);
 
         bm.moveShape(100, 0);
 
@@ -96,7 +69,7 @@ public class BoardModelTest extends TestCase
         assertNull("left is empty", bm.findPointAt(180,100));
         assertNull("right is empty", bm.findPointAt(220,100));
         assertEquals("found at center", ts, bm.findPointAt(200, 100).shape);
-        assertEquals("called erase", 2, ts.nErase);
+        assertEquals("called draw", 3, ts.nDraw);
     }
 
     public void testMoveOnFloat() {
@@ -105,7 +78,7 @@ public class BoardModelTest extends TestCase
         TestShape ts = new TestShape();
         bm.addShape(100, 100, ts);
         bm.liftShape(100, 100);
-        assertEquals("called erase", 1, ts.nErase);
+        assertEquals("called draw", 2, ts.nDraw);
 
         bm.moveShape(100, 0);
 
@@ -113,8 +86,8 @@ public class BoardModelTest extends TestCase
         assertNull("left is empty", bm.findPointAt(180,100));
         assertNull("right is empty", bm.findPointAt(220,100));
         assertEquals("found at center", ts, bm.findPointAt(200, 100).shape);
-        assertEquals("called erase", 2, ts.nErase);
-	assertEquals("Erased on float", fgc, ts.eraseGc);
+        assertEquals("called draw", 3, ts.nDraw);
+	assertEquals("Drew on float", fgc, ts.drawGc);
     }
     
     public void testRotate() {
@@ -180,5 +153,140 @@ public class BoardModelTest extends TestCase
 	assertEquals("X is snapped", p1.x+100, p2.x, 0.001);
     }
     
-}
 
+    public void testEraseNotFound() {
+        BoardModel bm = new BoardModel(gc, fgc);
+        TestShape ts = new TestShape();
+        bm.addShape(100, 100, ts);
+        bm.eraseShape(bm.findPointAt(100,100));
+        assertNull("erased", bm.findPointAt(100,100));
+    }
+
+    public void testFindAfterAlign() {
+        BoardModel bm = new BoardModel(gc, fgc);
+        TestShape ts = new TestShape();
+        bm.addShape(400, 300, ts);
+        bm.goLeft();
+        bm.goUp();
+        assertNull("old place is empty", bm.findPointAt(400,300));
+        assertEquals("found at corner", ts, bm.findPointAt(5, 50).shape);
+    }
+
+    public void testFindAmongMany() {
+        BoardModel bm = new BoardModel(gc, fgc);
+        TestShape ts = new TestShape();
+        for (int i=0; i<100; ++i) {
+            for (int j=0; j<10; ++j) {
+                Point p = new Point(i*20, j*200, ts);
+                bm.addPoint(p);
+            }
+        }
+        Point p = bm.findPointAt(1001, 1810);
+        assertEquals("nearest x", 1000, p.x, 0.001);
+        assertEquals("nearest y", 1800, p.y, 0.001);
+        assertNull("gap is empty", bm.findPointAt(1010, 1900));
+    }
+    
+    public void testConnectionSnap() {
+        BoardModel bm = new BoardModel(gc, fgc);
+        Track track = new Track.Straight("straight", TrackScale.N, new Length(2.5));
+        double h = track.getHeight();
+
+        bm.addShape(100, 100, track);
+        bm.addShape(103, 100+h-4, track);
+        Point p = bm.findPointAt(100, 100+h);
+        assertEquals("X joined", 100, p.x, 0.001);
+        assertEquals("Y joined", 100+h, p.y, 0.001);
+        assertEquals("Angle matches", 0, p.angle, 0.001);
+    }
+    
+    public void testIndexOf() {
+        BoardModel bm = new BoardModel(gc, fgc);
+        Point[] points = new Point[5];
+        for (int i=0; i<points.length; ++i) {
+            points[i] = new Point(100 + 40*i, 100, new TestShape());
+            bm.addPoint(points[i]);
+        }
+        assertEquals("last", 4, bm.indexOf(points[4]));
+        bm.eraseShape(points[1]);
+        assertEquals("erased", -1, bm.indexOf(points[1]));
+        assertEquals("before", 0, bm.indexOf(points[0]));
+        assertEquals("after", 2, bm.indexOf(points[3]));
+        bm.restoreShape(points[1], 0);
+        assertEquals("restored", 0, bm.indexOf(points[1]));
+        for (int i=0; i<bm.shapes.size(); ++i) {
+            assertEquals("in order", i, bm.indexOf(bm.shapes.get(i)));
+        }
+    }
+
+    public void testEraseRedrawsNeighborsOnly() {
+        BoardModel bm = new BoardModel(gc, fgc);
+        TestShape near = new TestShape();
+        TestShape far = new TestShape();
+        bm.addShape(100, 100, near);
+        bm.addShape(108, 100, near);
+        bm.addShape(200, 100, far);
+        assertEquals("far drawn once", 1, far.nDraw);
+        int before = near.nDraw;
+
+        bm.eraseShape(bm.findPointAt(100,100));
+        assertEquals("neighbor redrawn", before+1, near.nDraw);
+        assertEquals("far not redrawn", 1, far.nDraw);
+    }
+
+    public void testDragIndicators() {
+        BoardModel bm = new BoardModel(gc, fgc);
+        TestShape held = new TestShape();
+        TestShape fixed = new TestShape();
+        bm.addShape(100, 100, fixed);
+        bm.addShape(150, 100, held);
+
+        bm.liftShape(150, 100);
+        bm.moveShape(-45, 0);
+        assertEquals("clipped", Color.RED, fixed.color);
+        int drawn = fixed.nDraw;
+        bm.moveShape(1, 0);
+        assertEquals("still clipped, not redrawn", drawn, fixed.nDraw);
+        bm.moveShape(-1, 0);
+        bm.moveShape(5, 0);
+        assertEquals("obscured", Color.YELLOW, fixed.color);
+        bm.moveShape(40, 0);
+        assertEquals("cleared", Color.GREEN, fixed.color);
+    }
+    
+    public void testStats() {
+        BoardModel bm = new BoardModel(gc, fgc);
+        TestShape held = new TestShape();
+        TestShape fixed = new TestShape();
+        bm.addShape(100, 100, fixed);
+        bm.addShape(150, 100, held);
+
+        final int[] counts = new int[4];
+        bm.setStats(new BoardModel.Stats() {
+                public void moved(int examined, int drawn) {
+                    counts[0] = examined;
+                    counts[1] = drawn;
+                }
+                public void snapped(int examined) {
+                    counts[2] = examined;
+                }
+                public void repainted(int examined, int drawn) {
+                    ++counts[3];
+                }
+            });
+        bm.liftShape(150, 100);
+        bm.moveShape(-45, 0);
+        assertEquals("repaints", 2, counts[3]);
+        assertEquals("both looked at and drawn", 2, counts[1]);
+        assertTrue(counts[0] >= 2);
+        bm.releaseShape();
+        assertTrue("snap found the other", counts[2] >= 2);
+
+        long repaints = bm.getRepaints();
+        bm.setStats(null);
+        bm.redraw();
+        assertEquals("no reports when off", 3, counts[3]);
+        assertEquals("but still counted", repaints + 1, bm.getRepaints());
+    }
+
+}
@@ -0,0 +1,131 @@
+import javafx.scene.canvas.Canvas;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.HashMap;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+public class EditJournalTest extends TestCase
+{
+    private final Map<String,Shape> shapes = new HashMap<>();
+    private File layout;
+
+    @Override protected void setUp() throws IOException {
+	shapes.put("test", new TestShape());
+	layout = File.createTempFile("layout", ".xml");
+	layout.deleteOnExit();
+	EditJournal.journalFor(layout).deleteOnExit();
+    }
+
+    private BoardModel newModel() {
+	return new BoardModel(new Canvas(250,250).getGraphicsContext2D(),
+			      new Canvas(250,250).getGraphicsContext2D());
+    }
+
+    private void assertSame(BoardModel expected, BoardModel actual) {
+	assertEquals("same size", expected.shapes.size(), actual.shapes.size());
+	for (int i=0; i<expected.shapes.size(); ++i) {
+	    Point e = expected.shapes.get(i);
+	    Point a = actual.shapes.get(i);
+	    assertEquals("x", e.x, a.x);
+	    assertEquals("y", e.y, a.y);
+	    assertEquals("angle", e.angle, a.angle);
+	}
+    }
+
+    private static void await(EditJournal journal) {
+	try {
+	    journal.await();
+	} catch (InterruptedException e) {
+	    fail("interrupted");
+	}
+    }
+
+    public void testReplay() throws IOException {
+	BoardModel bm = newModel();
+	EditJournal journal = new EditJournal(layout, bm);
+	bm.addListener(journal);
+
+	bm.addShape(50, 50, shapes.get("test"));
+	bm.addShape(100, 50, shapes.get("test"));
+	bm.addShape(150, 50, shapes.get("test"));
+	bm.liftShape(100, 50);
+	bm.moveShape(0, 80);
+	bm.releaseShape();
+	bm.rotateShape(bm.shapes.get(0), 45);
+	bm.eraseShape(bm.shapes.get(2));
+	bm.goUp();
+	journal.close();
+	await(journal);
+
+	assertTrue("has edits", EditJournal.hasEdits(layout));
+	BoardModel copy = newModel();
+	assertEquals("all edits", 7, EditJournal.replay(layout, copy, shapes));
+	assertSame(bm, copy);
+	assertTrue("recovered board is dirty", copy.isDirty());
+    }
+
+    public void testCheckpointAndTornRecord() throws IOException {
+	BoardModel bm = newModel();
+	EditJournal journal = new EditJournal(layout, bm);
+	bm.addListener(journal);
+	bm.addShape(50, 50, shapes.get("test"));
+	bm.addShape(150, 50, shapes.get("test"));
+	journal.checkpoint();
+	bm.rotateShape(bm.shapes.get(1), 90);
+	journal.close();
+	await(journal);
+
+	//a crash in the middle of the last record
+	File file = EditJournal.journalFor(layout);
+	try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+	    raf.setLength(raf.length() - 3);
+	}
+
+	BoardModel copy = newModel();
+	copy.addShape(10, 10, shapes.get("test"));
+	assertEquals("clear, two adds", 3, EditJournal.replay(layout, copy, shapes));
+	assertEquals("cleared first", 2, copy.shapes.size());
+	assertEquals("before the rotate", 0.0, copy.shapes.get(1).angle);
+	assertEquals("x", 150.0, copy.shapes.get(1).x);
+    }
+
+    public void testRestart() throws IOException {
+	BoardModel bm = newModel();
+	EditJournal journal = new EditJournal(layout, bm);
+	bm.addListener(journal);
+	bm.addShape(50, 50, shapes.get("test"));
+	journal.restart();
+	journal.close();
+	await(journal);
+	assertFalse("saved, nothing to recover", EditJournal.hasEdits(layout));
+    }
+
+    public void testDiscard() throws IOException {
+	BoardModel bm = newModel();
+	EditJournal journal = new EditJournal(layout, bm);
+	bm.addListener(journal);
+	bm.addShape(50, 50, shapes.get("test"));
+	journal.discard();
+	//without waiting, as when the layout is opened again
+	assertFalse("not offered back", EditJournal.hasEdits(layout));
+	await(journal);
+	assertFalse("deleted", EditJournal.journalFor(layout).exists());
+    }
+
+    public void testSetAside() throws IOException {
+	BoardModel bm = newModel();
+	EditJournal journal = new EditJournal(layout, bm);
+	bm.addListener(journal);
+	bm.addShape(50, 50, shapes.get("test"));
+	journal.close();
+
+	File aside = EditJournal.setAside(layout);
+	aside.deleteOnExit();
+	assertFalse("moved", EditJournal.hasEdits(layout));
+	assertTrue("edits kept", aside.length() > EditJournal.journalFor(layout).length());
+    }
+}
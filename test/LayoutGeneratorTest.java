@@ -0,0 +1,54 @@
+import javafx.scene.canvas.Canvas;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+public class LayoutGeneratorTest extends TestCase
+{
+    public void testSeed() {
+	LayoutSnapshot a = new LayoutGenerator(5).generate(2000);
+	LayoutSnapshot b = new LayoutGenerator(5).generate(2000);
+	assertTrue(a.size() >= 2000);
+	assertEquals(a.size(), b.size());
+	for (int i=0; i<a.size(); ++i) {
+	    assertEquals(a.getShape(i), b.getShape(i));
+	    assertEquals(a.getX(i), b.getX(i));
+	    assertEquals(a.getY(i), b.getY(i));
+	    assertEquals(a.getAngle(i), b.getAngle(i));
+	}
+
+	LayoutSnapshot c = new LayoutGenerator(6).generate(2000);
+	boolean same = a.size() == c.size();
+	for (int i=0; same && i<a.size(); ++i) same = a.getX(i) == c.getX(i);
+	assertFalse("another seed, another layout", same);
+    }
+
+    //every joint mates, and track only ends at the far end of a straight
+    public void testMated() {
+	LayoutSnapshot layout = new LayoutGenerator(3).generate(3000);
+	Map<String, Shape> shapes = new HashMap<>();
+	for (Shape s : new ShapeBox().getShapes()) shapes.put(s.getId(), s);
+	BoardModel bm = new BoardModel(new Canvas(250,250).getGraphicsContext2D(),
+				       new Canvas(250,250).getGraphicsContext2D());
+	for (int i=0; i<layout.size(); ++i) {
+	    Point p = new Point(layout.getX(i), layout.getY(i), shapes.get(layout.getShape(i)));
+	    p.angle = layout.getAngle(i);
+	    bm.addPoint(p);
+	}
+	bm.showJointCheck(true);
+
+	JointCheck check = bm.getJointCheck();
+	assertEquals("no near misses", 0, check.count(JointCheck.State.NEAR_MISS));
+	assertTrue("some spurs", check.count(JointCheck.State.OPEN) > 0);
+	for (Point p : bm.shapes) {
+	    if (p.connections == null) continue;
+	    for (GlobalConnection c : p.connections) {
+		if (check.stateOf(c) != null) {
+		    assertEquals("open end on a straight", "straight5", p.shape.getId());
+		}
+	    }
+	}
+    }
+}
@@ -0,0 +1,54 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+public class LayoutSnapshotTest extends TestCase
+{
+    private List<Point> points(int n) {
+	List<Point> points = new ArrayList<>();
+	for (int i=0; i<n; ++i) {
+	    Point p = new Point(i, 2*i, new TestShape());
+	    p.angle = 45;
+	    points.add(p);
+	}
+	return points;
+    }
+
+    private void checkSave(String name) throws IOException {
+	File dir = Files.createTempDirectory("layout").toFile();
+	File file = new File(dir, name);
+	Files.write(file.toPath(), "old".getBytes("UTF-8"));
+
+	List<Point> points = points(3);
+	LayoutSnapshot layout = LayoutSnapshot.of(24, 48, 30, points);
+	points.get(0).x = 100;
+	assertEquals("snapshot is a copy", 0.0, layout.getX(0));
+
+	layout.save(file);
+	assertEquals("no temp files left", 1, dir.list().length);
+
+	try (LayoutReader reader = LayoutReader.open(file)) {
+	    assertEquals("width", 48.0, reader.getWidth());
+	    List<BoardController.SavedPlace> places = new ArrayList<>();
+	    reader.read(places, 10);
+	    assertEquals("all places", 3, places.size());
+	    assertEquals("y", 4.0, places.get(2).y);
+	    assertEquals("angle", 45.0, places.get(2).angle);
+	    assertEquals("shape", "test", places.get(2).shape);
+	}
+	file.delete();
+	dir.delete();
+    }
+
+    public void testSaveXml() throws IOException {
+	checkSave("board.xml");
+    }
+
+    public void testSaveBinary() throws IOException {
+	checkSave("board" + BinaryLayout.EXTENSION);
+    }
+}
@@ -0,0 +1,55 @@
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.zip.Adler32;
+
+import javax.imageio.ImageIO;
+
+import junit.framework.TestCase;
+
+public class PngWriterTest extends TestCase
+{
+    public void testBands() throws IOException {
+	int width = 37, height = 50;
+	int[] pixels = new int[width * height];
+	Random random = new Random(1);
+	for (int i=0; i<pixels.length; ++i) {
+	    //runs of color, like a drawing, with some noise
+	    pixels[i] = random.nextInt(8) == 0 ? random.nextInt() : 0xff000000 | (i / 7) * 0x10305;
+	}
+
+	ByteArrayOutputStream out = new ByteArrayOutputStream();
+	PngWriter png = new PngWriter(out, width, height);
+	int[] above = null;
+	for (int y=0; y<height; y+=16) {
+	    int rows = Math.min(16, height - y);
+	    int[] band = new int[width * rows];
+	    System.arraycopy(pixels, y*width, band, 0, band.length);
+	    png.write(PngWriter.encode(band, width, rows, above, y + rows == height));
+	    above = new int[width];
+	    System.arraycopy(band, (rows-1)*width, above, 0, width);
+	}
+
+	BufferedImage image = ImageIO.read(new ByteArrayInputStream(out.toByteArray()));
+	assertEquals(width, image.getWidth());
+	assertEquals(height, image.getHeight());
+	for (int y=0; y<height; ++y) {
+	    for (int x=0; x<width; ++x) {
+		assertEquals("pixel " + x + "," + y, pixels[y*width + x] | 0xff000000,
+			     image.getRGB(x, y));
+	    }
+	}
+    }
+
+    public void testCombine() {
+	byte[] data = new byte[100000];
+	new Random(2).nextBytes(data);
+	Adler32 all = new Adler32(), a = new Adler32(), b = new Adler32();
+	all.update(data, 0, data.length);
+	a.update(data, 0, 30000);
+	b.update(data, 30000, 70000);
+	assertEquals(all.getValue(), PngWriter.combine(a.getValue(), b.getValue(), 70000));
+    }
+}
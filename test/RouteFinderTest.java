@@ -0,0 +1,77 @@
+import javafx.scene.canvas.Canvas;
+
+import junit.framework.TestCase;
+
+public class RouteFinderTest extends TestCase
+{
+    //60 pixels long at 24 ppi
+    private final Shape straight = new Track.Straight("straight", TrackScale.N, new Length(2.5));
+    private final Shape turnout = new Track.Turnout("right", TrackScale.N, Track.Turnout.Hand.RIGHT,
+						    new Length(5.0), new Length(19), 15.0);
+    private BoardModel bm;
+    private RouteFinder routes;
+
+    @Override protected void setUp() {
+	bm = new BoardModel(new Canvas(250,250).getGraphicsContext2D(),
+			    new Canvas(250,250).getGraphicsContext2D());
+	routes = bm.getRoutes();
+    }
+
+    //a straight with its second end on c
+    private Point attach(GlobalConnection c) {
+	double angle = c.point.angle + c.connection.angle;
+	double cos = Geometry.cos(angle), sin = Geometry.sin(angle);
+	Point p = new Point(c.x + Geometry.rotateX(0, -30, cos, sin),
+			    c.y + Geometry.rotateY(0, -30, cos, sin), straight);
+	p.angle = angle;
+	bm.addPoint(p);
+	return p;
+    }
+
+    public void testTurnout() {
+	Point t = new Point(200, 200, turnout);
+	bm.addPoint(t);
+	Point common = attach(t.connections[0]);
+	Point through = attach(t.connections[1]);
+	Point diverging = attach(t.connections[2]);
+	assertEquals(3, bm.getGraph().edgeCount());
+
+	RouteFinder.Route route = routes.find(common, diverging);
+	assertNotNull(route);
+	assertEquals(3, route.getPieces().size());
+	assertSame(t, route.getPieces().get(1));
+	assertEquals(60 + 19*24 * Math.toRadians(15) + 60, route.getLength(), 1e-6);
+
+	route = routes.find(through, common);
+	assertEquals(60 + 5*24 + 60, route.getLength(), 1e-6);
+
+	assertNull("can't go from leg to leg", routes.find(through, diverging));
+	assertNull(routes.find(diverging, through));
+    }
+
+    public void testCache() {
+	Point a = new Point(100, 100, straight);
+	bm.addPoint(a);
+	Point b = attach(a.connections[0]);
+	Point c = attach(b.connections[0]);
+
+	RouteFinder.Route route = routes.find(a, c);
+	assertEquals(180, route.getLength(), 1e-6);
+	assertSame(route, routes.find(a, c));
+
+	bm.addPoint(new Point(500, 500, straight));
+	assertSame("far away change", route, routes.find(a, c));
+
+	bm.eraseShape(b);
+	assertNull(routes.find(a, c));
+	bm.restoreShape(b, 1);
+	assertEquals(180, routes.find(a, c).getLength(), 1e-6);
+
+	//past c, so only c's change forgets the route
+	Point d = attach(c.connections[0]);
+	routes.find(a, c);
+	bm.eraseShape(d);
+	assertEquals("forgotten", 0, routes.cacheSize());
+	assertEquals("by every piece", 0, routes.usedCount());
+    }
+}
@@ -0,0 +1,28 @@
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.paint.Color;
+
+/** A shape that counts how often it's drawn and erased, and how. */
+public class TestShape extends Shape 
+{
+    public TestShape() {
+	super("test", 10, 100);
+    }
+
+    public Color color;
+    public int nDraw = 0;
+    public int nErase = 0;
+    public GraphicsContext drawGc = null;
+    public GraphicsContext eraseGc = null;
+    
+    public void draw(Pen pen, Color color) {
+        ++nDraw;
+        this.color = color;
+	drawGc = ((FxPen)pen).getGraphicsContext();
+    }
+    
+    public void erase(Pen pen){
+        ++nErase;
+	eraseGc = ((FxPen)pen).getGraphicsContext();
+    }
+    
+}
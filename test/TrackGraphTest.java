@@ -0,0 +1,108 @@
+import javafx.scene.canvas.Canvas;
+
+import junit.framework.TestCase;
+
+public class TrackGraphTest extends TestCase
+{
+    //60 pixels long at 24 ppi, joined end to end along y
+    private final Shape straight = new Track.Straight("straight", TrackScale.N, new Length(2.5));
+    private BoardModel bm;
+    private TrackGraph graph;
+
+    @Override protected void setUp() {
+	bm = new BoardModel(new Canvas(250,250).getGraphicsContext2D(),
+			    new Canvas(250,250).getGraphicsContext2D());
+	graph = bm.getGraph();
+    }
+
+    private Point place(double x, double y) {
+	Point p = new Point(x, y, straight);
+	bm.addPoint(p);
+	return p;
+    }
+
+    public void testJoin() {
+	Point a = place(100, 100);
+	Point b = place(100, 160);
+	Point c = place(100, 220);
+	place(300, 100);
+
+	assertEquals("joints", 2, graph.edgeCount());
+	assertEquals("components", 2, graph.componentCount());
+	assertTrue(graph.connected(a, c));
+	assertEquals(3, graph.componentSize(b));
+	assertNull("open end", graph.mateOf(a.connections[0]));
+	assertSame(b.connections[0], graph.mateOf(a.connections[1]));
+    }
+
+    public void testClearRadius() {
+	JointHash joints = new JointHash();
+	joints.add(new Point(100, 100, straight));
+	assertTrue("sized", joints.maxRadius() > 0);
+	joints.clear();
+	assertEquals("forgotten", 0.0, joints.maxRadius());
+    }
+
+    public void testSplitAndRejoin() {
+	Point a = place(100, 100);
+	Point b = place(100, 160);
+	Point c = place(100, 220);
+
+	bm.eraseShape(b);
+	assertEquals("split", 2, graph.componentCount());
+	assertFalse(graph.connected(a, c));
+	assertEquals(1, graph.componentSize(c));
+
+	bm.restoreShape(b, 1);
+	assertEquals("rejoined", 1, graph.componentCount());
+	assertEquals(3, graph.componentSize(a));
+
+	bm.rotateShape(c, 90);
+	assertEquals("turned away", 2, graph.componentCount());
+	bm.rotateShape(c, -90);
+	assertEquals("turned back", 1, graph.componentCount());
+
+	bm.goUp();
+	assertEquals("shift keeps joints", 2, graph.edgeCount());
+    }
+
+    public void testDrag() {
+	Point a = place(100, 100);
+	Point b = place(100, 160);
+
+	bm.liftShape(100, 160);
+	assertEquals("held piece is out", 1, graph.componentCount());
+	bm.moveShape(50, 0);
+	bm.releaseShape();
+	assertEquals("dropped apart", 2, graph.componentCount());
+
+	bm.liftShape(150, 160);
+	bm.moveShape(-49, -3);
+	bm.releaseShape();
+	assertTrue("snapped back on", graph.connected(a, b));
+
+	bm.floatShape(b, true);
+	assertEquals("floating isn't joined", 0, graph.edgeCount());
+    }
+
+    public void testJointCheck() {
+	Point a = place(100, 100);
+	Point b = place(100, 163);
+	JointCheck check = bm.getJointCheck();
+	bm.showJointCheck(true);
+
+	assertEquals(JointCheck.State.OPEN, check.stateOf(a.connections[0]));
+	assertEquals("3 pixels off", JointCheck.State.NEAR_MISS, check.stateOf(a.connections[1]));
+	assertEquals(JointCheck.State.NEAR_MISS, check.stateOf(b.connections[0]));
+
+	bm.placeShape(b, 100, 160, 0);
+	assertNull("joined", check.stateOf(a.connections[1]));
+	assertNull(check.stateOf(b.connections[0]));
+	assertEquals(2, check.count(JointCheck.State.OPEN));
+
+	bm.eraseShape(b);
+	assertEquals("left open", JointCheck.State.OPEN, check.stateOf(a.connections[1]));
+	assertNull(check.stateOf(b.connections[0]));
+	assertEquals(0, check.count(JointCheck.State.NEAR_MISS));
+    }
+}
@@ -0,0 +1,128 @@
+import javafx.scene.canvas.Canvas;
+
+import junit.framework.TestCase;
+
+public class TrainSimTest extends TestCase
+{
+    //60 pixels long at 24 ppi
+    private final Shape straight = new Track.Straight("straight", TrackScale.N, new Length(2.5));
+    private final Shape curve = new Track.Curve("curve", TrackScale.N, new Length(9.5), 30.0);
+    private final Shape turnout = new Track.Turnout("right", TrackScale.N, Track.Turnout.Hand.RIGHT,
+						    new Length(5.0), new Length(19), 15.0);
+    private final Shape cross = new Track.Cross("x45", TrackScale.N, new Length(2.0), 45);
+    //10 pixels a step
+    private static final double SPEED = 10 / TrainSim.STEP;
+
+    private BoardModel bm;
+    private TrainSim sim;
+
+    @Override protected void setUp() {
+	bm = new BoardModel(new Canvas(250,250).getGraphicsContext2D(),
+			    new Canvas(250,250).getGraphicsContext2D());
+	sim = new TrainSim(bm);
+    }
+
+    //a straight with its second end on c
+    private Point attach(GlobalConnection c) {
+	double angle = c.point.angle + c.connection.angle;
+	double cos = Geometry.cos(angle), sin = Geometry.sin(angle);
+	Point p = new Point(c.x + Geometry.rotateX(0, -30, cos, sin),
+			    c.y + Geometry.rotateY(0, -30, cos, sin), straight);
+	p.angle = angle;
+	bm.addPoint(p);
+	return p;
+    }
+
+    private static void assertAngle(String message, double expected, double actual) {
+	double d = ((actual - expected) % 360 + 540) % 360 - 180;
+	assertEquals(message, 0, d, 1e-6);
+    }
+
+    //every way through each shape starts at one end heading in, and ends at the other heading out
+    public void testTravel() {
+	double[] out = new double[3];
+	for (Shape s : new Shape[] { curve, turnout, cross }) {
+	    Track.LocalConnection[] c = s.getConnections();
+	    for (int from=0; from<c.length; ++from) {
+		for (int to=0; to<c.length; ++to) {
+		    double length = s.passage(from, to);
+		    if (length < 0) continue;
+		    String way = s.getId() + " " + from + " to " + to;
+
+		    s.travel(from, to, 0, out);
+		    assertEquals(way + " x in", c[from].x, out[0], 1e-9);
+		    assertEquals(way + " y in", c[from].y, out[1], 1e-9);
+		    assertAngle(way + " heading in", c[from].angle + 180, out[2]);
+
+		    s.travel(from, to, length, out);
+		    assertEquals(way + " x out", c[to].x, out[0], 1e-9);
+		    assertEquals(way + " y out", c[to].y, out[1], 1e-9);
+		    assertAngle(way + " heading out", c[to].angle, out[2]);
+		}
+	    }
+	}
+    }
+
+    public void testJointAndDeadEnd() {
+	Point a = new Point(100, 100, straight);
+	bm.addPoint(a);
+	attach(a.connections[1]);
+
+	//sets off from a's middle toward its second end, down the board
+	sim.addTrain(a, SPEED);
+	double[] y = new double[12];
+	for (int i=0; i<y.length; ++i) {
+	    sim.step();
+	    assertEquals("one train", 3, sim.getPositions().length);
+	    assertEquals("on the line", 100, sim.getPositions()[0], 1e-6);
+	    y[i] = sim.getPositions()[1];
+	}
+	assertEquals("across the joint", 160, y[5], 1e-6);
+	assertEquals("to the end", 190, y[8], 1e-6);
+	assertEquals("and back", 160, y[11], 1e-6);
+    }
+
+    public void testShift() {
+	Point a = new Point(100, 100, straight);
+	bm.addPoint(a);
+	attach(a.connections[1]);
+	sim.addTrain(a, SPEED);
+	sim.step();
+	double y = sim.getPositions()[1];
+
+	bm.moveAll(20, -30);
+	sim.sendTrack();
+	sim.step();
+	assertEquals("moved with the track", 120, sim.getPositions()[0], 1e-6);
+	assertEquals("and kept going", y - 30 + 10, sim.getPositions()[1], 1e-6);
+    }
+
+    //a train set down on a turnout goes out its common end's first way, as thrown
+    private double heading() {
+	sim.clearTrains();
+	sim.addTrain(bm.shapes.get(0), SPEED);
+	sim.step();
+	return sim.getPositions()[2];
+    }
+
+    public void testThrowSwitch() {
+	Point t = new Point(200, 200, turnout);
+	bm.addPoint(t);
+	attach(t.connections[0]);
+	attach(t.connections[1]);
+	attach(t.connections[2]);
+
+	assertAngle("through", 0, heading());
+	sim.throwSwitch(t);
+	assertTrue("diverging", Math.abs(heading()) > 1);
+	sim.throwSwitch(t);
+	assertAngle("through again", 0, heading());
+
+	sim.throwSwitch(t);
+	bm.eraseShape(t);
+	//which copies the track without t
+	sim.addTrain(bm.shapes.get(0), SPEED);
+	bm.restoreShape(t, 0);
+	assertAngle("forgotten once erased", 0, heading());
+    }
+}
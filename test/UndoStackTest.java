@@ -0,0 +1,69 @@
+import javafx.scene.canvas.Canvas;
+
+import junit.framework.TestCase;
+
+public class UndoStackTest extends TestCase
+{
+    private final Shape shape = new TestShape();
+    private BoardModel bm;
+    private UndoStack undo;
+
+    @Override protected void setUp() {
+	bm = new BoardModel(new Canvas(250,250).getGraphicsContext2D(),
+			    new Canvas(250,250).getGraphicsContext2D());
+	undo = new UndoStack(bm, 100);
+    }
+
+    public void testDragIsOneEdit() {
+	bm.addShape(50, 50, shape);
+	Point p = bm.shapes.get(0);
+	double x = p.x, y = p.y;
+
+	bm.liftShape(50, 50);
+	for (int i=0; i<20; ++i) bm.moveShape(3.3, 1.1);
+	bm.rotateShape(p, 45);
+	bm.releaseShape();
+	assertEquals("add and one move", 2, undo.size());
+
+	double movedX = p.x, movedY = p.y;
+	undo.undo();
+	assertEquals("x", x, p.x);
+	assertEquals("y", y, p.y);
+	assertEquals("angle", 0.0, p.angle);
+
+	undo.redo();
+	assertEquals("snapped x", movedX, p.x);
+	assertEquals("snapped y", movedY, p.y);
+	assertEquals("angle", 45.0, p.angle);
+    }
+
+    public void testUndoErase() {
+	bm.addShape(50, 50, shape);
+	bm.addShape(100, 50, shape);
+	bm.addShape(150, 50, shape);
+	Point p = bm.shapes.get(1);
+	bm.eraseShape(p);
+	bm.goUp();
+	bm.floatShape(bm.shapes.get(0), true);
+
+	undo.undo();
+	assertFalse("not floating", bm.shapes.get(0).floating);
+	undo.undo();
+	assertEquals("unshifted", 50.0, bm.shapes.get(0).y);
+	undo.undo();
+	assertEquals("restored", 3, bm.shapes.size());
+	assertSame("in its place", p, bm.shapes.get(1));
+	assertTrue(undo.canRedo());
+
+	bm.addShape(200, 50, shape);
+	assertFalse("new edit drops redo", undo.canRedo());
+    }
+
+    public void testLimit() {
+	undo.setLimit(5);
+	for (int i=0; i<10; ++i) bm.addShape(20*i, 50, shape);
+	assertEquals(5, undo.size());
+	while (undo.canUndo()) undo.undo();
+	assertEquals("oldest kept", 5, bm.shapes.size());
+    }
+}
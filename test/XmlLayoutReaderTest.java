@@ -0,0 +1,58 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+public class XmlLayoutReaderTest extends TestCase
+{
+    private File write(String xml) throws IOException {
+	File file = File.createTempFile("layout", ".xml");
+	file.deleteOnExit();
+	Files.write(file.toPath(), xml.getBytes("UTF-8"));
+	return file;
+    }
+
+    public void testBatches() throws IOException {
+	StringBuilder sb = new StringBuilder();
+	sb.append("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n");
+	sb.append("<savedBoard dpi=\"24.0\" width=\"48.0\" height=\"30.0\">\n");
+	for (int i=0; i<5; ++i) {
+	    sb.append("<tracks><x>").append(i).append(".5</x><y>2.0</y>")
+		.append("<angle>30.0</angle><shape>curve</shape></tracks>\n");
+	}
+	sb.append("</savedBoard>\n");
+
+	try (XmlLayoutReader reader = new XmlLayoutReader(write(sb.toString()))) {
+	    assertEquals("width", 48.0, reader.getWidth());
+	    assertEquals("height", 30.0, reader.getHeight());
+
+	    List<BoardController.SavedPlace> places = new ArrayList<>();
+	    assertEquals("first batch", 2, reader.read(places, 2));
+	    assertEquals("second batch", 2, reader.read(places, 2));
+	    assertEquals("last batch", 1, reader.read(places, 2));
+	    assertEquals("at end", 0, reader.read(places, 2));
+	    assertEquals("all read", 1.0, reader.progress());
+
+	    BoardController.SavedPlace sp = places.get(4);
+	    assertEquals("x", 4.5, sp.x);
+	    assertEquals("y", 2.0, sp.y);
+	    assertEquals("angle", 30.0, sp.angle);
+	    assertEquals("shape", "curve", sp.shape);
+	}
+    }
+
+    public void testDefaults() throws IOException {
+	String xml = "<savedBoard><tracks><shape>straight</shape><extra><a/></extra></tracks></savedBoard>";
+	try (XmlLayoutReader reader = new XmlLayoutReader(write(xml))) {
+	    assertEquals("no width", 0.0, reader.getWidth());
+
+	    List<BoardController.SavedPlace> places = new ArrayList<>();
+	    assertEquals("one place", 1, reader.read(places, 10));
+	    assertEquals("angle", 0.0, places.get(0).angle);
+	    assertEquals("shape", "straight", places.get(0).shape);
+	}
+    }
+}